@@ -0,0 +1,226 @@
+package com.invoiceparser.io;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ * Streams the PDF and CSV entries of a ZIP or (gzipped) tar archive without
+ * unpacking it. Each entry is read into memory when it is reached, or spilled
+ * to a temporary file once it grows past the in-memory limit. Reading stops
+ * at the entry limit, so a highly compressed entry cannot fill the disk.
+ *
+ * Entries are named {@code <archive name>/<entry path>}.
+ */
+public class ArchiveReader implements Iterator<InvoiceSource>, Closeable {
+    private final String archiveName;
+    private final ArchiveInputStream input;
+    private final Predicate<String> include;
+    private final long maxInMemoryBytes;
+    private final long maxEntryBytes;
+    private InvoiceSource next;
+    private boolean finished;
+
+    private ArchiveReader(String archiveName, ArchiveInputStream input, Predicate<String> include,
+                          long maxInMemoryBytes, long maxEntryBytes) {
+        this.archiveName = archiveName;
+        this.input = input;
+        this.include = include;
+        this.maxInMemoryBytes = maxInMemoryBytes;
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    /**
+     * Whether a file name has a supported archive extension
+     */
+    public static boolean isArchive(String fileName) {
+        String name = fileName.toLowerCase();
+        return name.endsWith(".zip") || name.endsWith(".tar") || name.endsWith(".tar.gz") || name.endsWith(".tgz");
+    }
+
+    /**
+     * @param include          decides by entry name whether an entry is read at all
+     * @param maxInMemoryBytes entries larger than this are spilled to a temporary file
+     * @param maxEntryBytes    entries larger than this are discarded and produced as
+     *                         {@link InvoiceSource#ofOversized oversized} sources (0 = no limit)
+     */
+    public static ArchiveReader open(File archive, Predicate<String> include, long maxInMemoryBytes,
+                                     long maxEntryBytes) throws IOException {
+        String name = archive.getName().toLowerCase();
+        InputStream in = new BufferedInputStream(new FileInputStream(archive));
+
+        try {
+            ArchiveInputStream archiveInput;
+            if (name.endsWith(".zip")) {
+                archiveInput = new ZipArchiveInputStream(in);
+            } else if (name.endsWith(".tar")) {
+                archiveInput = new TarArchiveInputStream(in);
+            } else if (name.endsWith(".tar.gz") || name.endsWith(".tgz")) {
+                archiveInput = new TarArchiveInputStream(new GzipCompressorInputStream(in));
+            } else {
+                throw new IllegalArgumentException("Unsupported archive format: " + archive.getName());
+            }
+            return new ArchiveReader(archive.getName(), archiveInput, include, maxInMemoryBytes, maxEntryBytes);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    public String getArchiveName() {
+        return archiveName;
+    }
+
+    /**
+     * @throws UncheckedIOException if the archive is corrupt or cannot be read
+     */
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            try {
+                next = readNext();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read archive " + archiveName + ": " + e.getMessage(), e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public InvoiceSource next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        InvoiceSource source = next;
+        next = null;
+        return source;
+    }
+
+    private InvoiceSource readNext() throws IOException {
+        ArchiveEntry entry;
+        while ((entry = input.getNextEntry()) != null) {
+            if (entry.isDirectory() || !input.canReadEntryData(entry)) {
+                continue;
+            }
+
+            String path = safePath(entry.getName());
+            if (path == null) {
+                System.err.println("⚠ Skipping unsafe archive entry: " + archiveName + "/" + entry.getName());
+                continue;
+            }
+
+            String name = archiveName + "/" + path;
+            String lowerName = name.toLowerCase();
+            if (!(lowerName.endsWith(".pdf") || lowerName.endsWith(".csv")) || !include.test(name)) {
+                continue;
+            }
+
+            return materialize(name);
+        }
+
+        finished = true;
+        close();
+        return null;
+    }
+
+    /**
+     * Buffer the current entry in memory, switching to a temporary file once
+     * it exceeds the in-memory limit. An entry over the entry limit is dropped
+     * as soon as the limit is crossed; the rest of it is skipped unread where
+     * the format allows.
+     */
+    private InvoiceSource materialize(String name) throws IOException {
+        ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            if (exceedsEntryLimit(memory.size() + read)) {
+                return InvoiceSource.ofOversized(name, memory.size() + read);
+            }
+            if (memory.size() + read > maxInMemoryBytes) {
+                return spill(name, memory, buffer, read);
+            }
+            memory.write(buffer, 0, read);
+        }
+
+        return InvoiceSource.of(name, memory.toByteArray());
+    }
+
+    private InvoiceSource spill(String name, ByteArrayOutputStream memory, byte[] buffer, int read) throws IOException {
+        String suffix = name.substring(name.lastIndexOf('.'));
+        File spill = File.createTempFile("invoice-entry-", suffix);
+        long total = memory.size() + (long) read;
+        try (OutputStream out = new FileOutputStream(spill)) {
+            memory.writeTo(out);
+            out.write(buffer, 0, read);
+            while (!exceedsEntryLimit(total) && (read = input.read(buffer)) != -1) {
+                total += read;
+                if (!exceedsEntryLimit(total)) {
+                    out.write(buffer, 0, read);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            deleteSpill(spill);
+            throw e;
+        }
+
+        if (exceedsEntryLimit(total)) {
+            deleteSpill(spill);
+            return InvoiceSource.ofOversized(name, total);
+        }
+        return InvoiceSource.ofTemporaryFile(name, spill);
+    }
+
+    private boolean exceedsEntryLimit(long size) {
+        return maxEntryBytes > 0 && size > maxEntryBytes;
+    }
+
+    private static void deleteSpill(File spill) {
+        if (spill.exists() && !spill.delete()) {
+            spill.deleteOnExit();
+        }
+    }
+
+    /**
+     * Normalize an entry path, rejecting absolute paths and ".." segments
+     * so outputs named after entries stay inside the output directory
+     */
+    static String safePath(String entryName) {
+        String path = entryName.replace('\\', '/');
+        while (path.startsWith("./")) {
+            path = path.substring(2);
+        }
+        if (path.isEmpty() || path.startsWith("/") || path.matches("^[A-Za-z]:.*")) {
+            return null;
+        }
+        for (String segment : path.split("/")) {
+            if (segment.equals("..")) {
+                return null;
+            }
+        }
+        return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        input.close();
+    }
+}
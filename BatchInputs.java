@@ -0,0 +1,110 @@
+package com.invoiceparser.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ * Lazily flattens batch inputs into sources: plain PDF/CSV files as they are,
+ * archives entry by entry. Nothing is read until the consumer asks for the
+ * next source, so only the entries in flight are held in memory.
+ */
+public class BatchInputs implements Iterator<InvoiceSource> {
+
+    /**
+     * Told about archives that cannot be opened or read (also when they are
+     * malformed); the batch moves on
+     */
+    public interface ErrorHandler {
+        void onError(String name, IOException error);
+    }
+
+    private final Iterator<File> files;
+    private final Predicate<String> include;
+    private final long maxInMemoryBytes;
+    private final long maxEntryBytes;
+    private final ErrorHandler errorHandler;
+    private ArchiveReader archive;
+    private InvoiceSource next;
+
+    /**
+     * @param include          decides by source name whether a source is produced at all
+     * @param maxInMemoryBytes archive entries larger than this are spilled to a temporary file
+     * @param maxEntryBytes    archive entries larger than this are not read to the end but
+     *                         produced as oversized sources (0 = no limit)
+     */
+    public BatchInputs(List<File> files, Predicate<String> include, long maxInMemoryBytes, long maxEntryBytes,
+                       ErrorHandler errorHandler) {
+        this.files = files.iterator();
+        this.include = include;
+        this.maxInMemoryBytes = maxInMemoryBytes;
+        this.maxEntryBytes = maxEntryBytes;
+        this.errorHandler = errorHandler;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null) {
+            if (archive != null) {
+                try {
+                    if (archive.hasNext()) {
+                        next = archive.next();
+                        break;
+                    }
+                } catch (UncheckedIOException e) {
+                    errorHandler.onError(archive.getArchiveName(), e.getCause());
+                } catch (RuntimeException e) {
+                    errorHandler.onError(archive.getArchiveName(), malformed(e));
+                }
+                closeArchive();
+            } else if (files.hasNext()) {
+                File file = files.next();
+                if (ArchiveReader.isArchive(file.getName())) {
+                    try {
+                        archive = ArchiveReader.open(file, include, maxInMemoryBytes, maxEntryBytes);
+                    } catch (IOException e) {
+                        errorHandler.onError(file.getName(), e);
+                    } catch (RuntimeException e) {
+                        errorHandler.onError(file.getName(), malformed(e));
+                    }
+                } else if (include.test(file.getName())) {
+                    next = InvoiceSource.of(file);
+                }
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public InvoiceSource next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        InvoiceSource source = next;
+        next = null;
+        return source;
+    }
+
+    /**
+     * Archive libraries report some corrupt headers with unchecked exceptions
+     */
+    private static IOException malformed(RuntimeException e) {
+        return new IOException("Malformed archive: " + e, e);
+    }
+
+    private void closeArchive() {
+        try {
+            archive.close();
+        } catch (IOException e) {
+            // Nothing left to read from it
+        } finally {
+            archive = null;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.invoiceparser.batch;
+
+import com.invoiceparser.reports.InvoiceAggregator;
+
+import java.io.File;
+
+/**
+ * Settings for a directory batch run
+ */
+public class BatchOptions {
+    public static final long DEFAULT_TIMEOUT_MILLIS = 5 * 60 * 1000;
+    public static final long DEFAULT_MAX_IN_MEMORY_ENTRY_SIZE = 16 * 1024 * 1024;
+    public static final long DEFAULT_MAX_ARCHIVE_ENTRY_SIZE = 1024L * 1024 * 1024;
+
+    private InvoiceAggregator aggregator;
+    private boolean resume;
+    private boolean splitInvoices;
+    private RetryPolicy retryPolicy = RetryPolicy.none();
+    private String journalFileName = CheckpointJournal.DEFAULT_FILE_NAME;
+    private File journalFile;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+    private long maxFileSize;
+    private long maxInMemoryEntrySize = DEFAULT_MAX_IN_MEMORY_ENTRY_SIZE;
+    private long maxArchiveEntrySize = DEFAULT_MAX_ARCHIVE_ENTRY_SIZE;
+    private SchedulingPolicy schedulingPolicy = SchedulingPolicy.LONGEST_FIRST;
+    private CostEstimator costEstimator;
+
+    public BatchOptions() {
+    }
+
+    /**
+     * Copy of another set of options
+     */
+    public BatchOptions(BatchOptions other) {
+        this.aggregator = other.aggregator;
+        this.resume = other.resume;
+        this.splitInvoices = other.splitInvoices;
+        this.retryPolicy = other.retryPolicy;
+        this.journalFileName = other.journalFileName;
+        this.journalFile = other.journalFile;
+        this.parallelism = other.parallelism;
+        this.timeoutMillis = other.timeoutMillis;
+        this.maxFileSize = other.maxFileSize;
+        this.maxInMemoryEntrySize = other.maxInMemoryEntrySize;
+        this.maxArchiveEntrySize = other.maxArchiveEntrySize;
+        this.schedulingPolicy = other.schedulingPolicy;
+        this.costEstimator = other.costEstimator;
+    }
+
+    public InvoiceAggregator getAggregator() {
+        return aggregator;
+    }
+
+    /**
+     * Receives every successfully parsed invoice (may be null)
+     */
+    public void setAggregator(InvoiceAggregator aggregator) {
+        this.aggregator = aggregator;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    /**
+     * Skip inputs the checkpoint journal already records as done
+     */
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
+    public boolean isSplitInvoices() {
+        return splitInvoices;
+    }
+
+    /**
+     * Save each invoice of a multi-invoice statement to its own output
+     * instead of treating every input as one invoice
+     */
+    public void setSplitInvoices(boolean splitInvoices) {
+        this.splitInvoices = splitInvoices;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    public String getJournalFileName() {
+        return journalFileName;
+    }
+
+    /**
+     * Name of the checkpoint journal, created inside the output directory
+     */
+    public void setJournalFileName(String journalFileName) {
+        this.journalFileName = journalFileName;
+    }
+
+    public File getJournalFile() {
+        return journalFile;
+    }
+
+    /**
+     * Explicit location of the checkpoint journal; overrides the journal
+     * file name when set
+     */
+    public void setJournalFile(File journalFile) {
+        this.journalFile = journalFile;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Number of files parsed concurrently
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Time budget for one parse attempt; files over budget are cancelled
+     * and quarantined (0 = no limit)
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public long getMaxFileSize() {
+        return maxFileSize;
+    }
+
+    /**
+     * Files larger than this many bytes are quarantined without parsing (0 = no limit)
+     */
+    public void setMaxFileSize(long maxFileSize) {
+        this.maxFileSize = maxFileSize;
+    }
+
+    public long getMaxInMemoryEntrySize() {
+        return maxInMemoryEntrySize;
+    }
+
+    /**
+     * Archive entries larger than this many bytes are spilled to a temporary
+     * file instead of being held in memory
+     */
+    public void setMaxInMemoryEntrySize(long maxInMemoryEntrySize) {
+        this.maxInMemoryEntrySize = maxInMemoryEntrySize;
+    }
+
+    public long getMaxArchiveEntrySize() {
+        return maxArchiveEntrySize;
+    }
+
+    /**
+     * Archive entries are read no further than this many bytes and quarantined
+     * once they exceed it, even without a file size limit (0 = no limit)
+     */
+    public void setMaxArchiveEntrySize(long maxArchiveEntrySize) {
+        this.maxArchiveEntrySize = maxArchiveEntrySize;
+    }
+
+    /**
+     * The tighter of the file size and archive entry limits (0 = no limit)
+     */
+    public long getArchiveEntryLimit() {
+        if (maxFileSize <= 0 || maxArchiveEntrySize <= 0) {
+            return Math.max(maxFileSize, maxArchiveEntrySize);
+        }
+        return Math.min(maxFileSize, maxArchiveEntrySize);
+    }
+
+    public SchedulingPolicy getSchedulingPolicy() {
+        return schedulingPolicy;
+    }
+
+    public void setSchedulingPolicy(SchedulingPolicy schedulingPolicy) {
+        this.schedulingPolicy = schedulingPolicy;
+    }
+
+    public CostEstimator getCostEstimator() {
+        return costEstimator;
+    }
+
+    /**
+     * Estimates file costs for scheduling and learns from actual parse times;
+     * when null, a batch uses the timing history kept in its output directory
+     */
+    public void setCostEstimator(CostEstimator costEstimator) {
+        this.costEstimator = costEstimator;
+    }
+}
@@ -0,0 +1,351 @@
+package com.invoiceparser.batch;
+
+import com.invoiceparser.extractors.ResourceLimitException;
+import com.invoiceparser.io.InvoiceSource;
+import com.invoiceparser.models.InvoiceData;
+import com.invoiceparser.reports.InvoiceAggregator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs a batch of invoice sources concurrently with a per-file time budget.
+ *
+ * A file that overruns its budget (or exhausts memory) is interrupted and
+ * quarantined as poison, and its worker slot is handed to the next file right
+ * away. Parsing code that ignores interrupts keeps running on an abandoned
+ * daemon thread, but can no longer hold up the rest of the batch.
+ */
+public class BatchRunner {
+
+    /**
+     * Work done for one source, typically parse and save; returns every invoice the source held.
+     * {@code cancelled} turns true once the file has been given up on (e.g. timed out); a job
+     * that keeps running after that must not write any output.
+     */
+    public interface Job {
+        List<InvoiceData> run(InvoiceSource source, BooleanSupplier cancelled) throws Exception;
+    }
+
+    private static final long MAX_WATCHDOG_PERIOD_MILLIS = 250;
+
+    private final BatchOptions options;
+    private final CheckpointJournal journal;
+    private final Set<Task> running = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger successCount = new AtomicInteger();
+    private final AtomicInteger failCount = new AtomicInteger();
+    private final List<String> quarantined = Collections.synchronizedList(new ArrayList<>());
+    private final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+
+    public BatchRunner(BatchOptions options, CheckpointJournal journal) {
+        this.options = options;
+        this.journal = journal;
+    }
+
+    /**
+     * Process every source and wait until each one has succeeded, failed or been quarantined.
+     * The next source is only pulled once a worker slot is free, so lazily
+     * produced sources (archive entries) are never buffered ahead of the workers.
+     *
+     * @param previous journal state from an earlier run, used to continue attempt counts
+     */
+    public void run(Iterator<InvoiceSource> sources, Map<String, CheckpointJournal.Entry> previous, Job job) throws InterruptedException {
+        int parallelism = Math.max(1, options.getParallelism());
+        Semaphore permits = new Semaphore(parallelism);
+
+        ExecutorService workers = Executors.newCachedThreadPool(daemonThreads("batch-worker-"));
+        ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(daemonThreads("batch-watchdog-"));
+
+        long timeout = options.getTimeoutMillis();
+        if (timeout > 0) {
+            long period = Math.max(1, Math.min(timeout / 4, MAX_WATCHDOG_PERIOD_MILLIS));
+            watchdog.scheduleAtFixedRate(this::checkDeadlines, period, period, TimeUnit.MILLISECONDS);
+        }
+
+        try {
+            while (true) {
+                permits.acquire();
+                if (!sources.hasNext()) {
+                    permits.release();
+                    break;
+                }
+                InvoiceSource source = sources.next();
+
+                if (source.isOversized()) {
+                    quarantine(source.getName(), "Archive entry exceeds the size limit; discarded after "
+                            + source.getSize() + " bytes");
+                    closeQuietly(source);
+                    permits.release();
+                    continue;
+                }
+                if (options.getMaxFileSize() > 0 && source.getSize() > options.getMaxFileSize()) {
+                    quarantine(source.getName(), "File size " + source.getSize() + " bytes exceeds the limit of "
+                            + options.getMaxFileSize() + " bytes");
+                    closeQuietly(source);
+                    permits.release();
+                    continue;
+                }
+
+                CheckpointJournal.Entry entry = previous.get(source.getName());
+                Task task = new Task(source, entry != null ? entry.getAttempts() : 0, permits);
+                workers.execute(() -> runTask(task, job));
+            }
+
+            // Every task gives its permit back once it is settled
+            permits.acquire(parallelism);
+            permits.release(parallelism);
+        } finally {
+            watchdog.shutdownNow();
+            workers.shutdown();
+        }
+    }
+
+    public int getSuccessCount() {
+        return successCount.get();
+    }
+
+    public int getFailCount() {
+        return failCount.get();
+    }
+
+    /**
+     * Wall-clock milliseconds from start to outcome of every file parsed in this run
+     */
+    public long[] getFileLatencies() {
+        synchronized (latencies) {
+            return latencies.stream().mapToLong(Long::longValue).toArray();
+        }
+    }
+
+    /**
+     * Names of the files quarantined in this run
+     */
+    public List<String> getQuarantined() {
+        synchronized (quarantined) {
+            return new ArrayList<>(quarantined);
+        }
+    }
+
+    private void runTask(Task task, Job job) {
+        RetryPolicy retryPolicy = options.getRetryPolicy();
+        long timeout = options.getTimeoutMillis();
+
+        synchronized (task) {
+            task.thread = Thread.currentThread();
+        }
+        task.startedAt = System.currentTimeMillis();
+        running.add(task);
+
+        try {
+            while (true) {
+                task.attempts++;
+                task.deadline = timeout > 0 ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
+
+                try {
+                    journal.started(task.key);
+                    List<InvoiceData> invoices = job.run(task.source, task::isSettled);
+
+                    if (task.settle()) {
+                        recordSuccess(task, invoices);
+                    }
+                    return;
+                } catch (Exception | OutOfMemoryError | StackOverflowError e) {
+                    if (task.isSettled()) {
+                        // The watchdog already quarantined this file
+                        return;
+                    }
+
+                    if (e instanceof OutOfMemoryError || e instanceof ResourceLimitException) {
+                        if (task.settle()) {
+                            recordLatency(task);
+                            quarantine(task.key, "Memory budget exceeded: " + e.getMessage());
+                            task.permits.release();
+                        }
+                        return;
+                    }
+
+                    if (e instanceof StackOverflowError) {
+                        // Deeply nested objects or content; parsing again would overflow again
+                        if (task.settle()) {
+                            recordLatency(task);
+                            quarantine(task.key, "Nesting too deep: stack overflow while parsing");
+                            task.permits.release();
+                        }
+                        return;
+                    }
+
+                    boolean retryable = retryPolicy.isRetryable(e);
+                    if (retryPolicy.canRetry(retryable, task.attempts)) {
+                        System.err.println("↻ Retrying " + task.key + " (attempt " + (task.attempts + 1)
+                                + " of " + retryPolicy.getMaxAttempts() + "): " + e.getMessage());
+                        task.deadline = Long.MAX_VALUE;
+                        Thread.sleep(retryPolicy.getBackoffMillis(task.attempts));
+                        continue;
+                    }
+
+                    if (task.settle()) {
+                        recordFailure(task, retryable, e);
+                    }
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            // Interrupted during retry backoff: the watchdog or shutdown settled the task
+            if (task.settle()) {
+                recordFailure(task, true, e);
+            }
+        } catch (Error e) {
+            // Any other error must still settle the task, or its slot is never released
+            if (task.settle()) {
+                recordFailure(task, false, e);
+            }
+        } finally {
+            running.remove(task);
+            closeQuietly(task.source);
+            synchronized (task) {
+                task.thread = null;
+            }
+            // Do not leak a late cancellation into the next file on this thread
+            Thread.interrupted();
+        }
+    }
+
+    private void checkDeadlines() {
+        long now = System.currentTimeMillis();
+        for (Task task : running) {
+            if (now > task.deadline && task.settle()) {
+                synchronized (task) {
+                    if (task.thread != null) {
+                        task.thread.interrupt();
+                    }
+                }
+                recordLatency(task);
+                quarantine(task.key, "Timed out after " + options.getTimeoutMillis() + " ms");
+                task.permits.release();
+            }
+        }
+    }
+
+    private void recordSuccess(Task task, List<InvoiceData> invoices) {
+        long millis = recordLatency(task);
+        try {
+            journal.done(task.key);
+
+            CostEstimator costEstimator = options.getCostEstimator();
+            if (costEstimator != null) {
+                costEstimator.record(task.key, task.source.getSize(), invoices, millis);
+            }
+
+            InvoiceAggregator aggregator = options.getAggregator();
+            if (aggregator != null) {
+                synchronized (aggregator) {
+                    invoices.forEach(aggregator::accept);
+                }
+            }
+
+            System.out.println("✓ Successfully processed: " + task.key
+                    + (invoices.size() > 1 ? " (" + invoices.size() + " invoices)" : ""));
+            successCount.incrementAndGet();
+        } catch (IOException | RuntimeException e) {
+            // The task is settled, so nothing else would count this file
+            System.err.println("✗ Could not record progress for: " + task.key);
+            System.err.println("  Error: " + e.getMessage());
+            failCount.incrementAndGet();
+        } finally {
+            task.permits.release();
+        }
+    }
+
+    private void recordFailure(Task task, boolean retryable, Throwable error) {
+        recordLatency(task);
+        try {
+            journal.failed(task.key, retryable, error.getClass().getSimpleName() + ": " + error.getMessage());
+        } catch (IOException e) {
+            System.err.println("✗ Could not record progress for: " + task.key);
+        } finally {
+            System.err.println("✗ Failed to process: " + task.key);
+            System.err.println("  Error: " + error.getMessage());
+            failCount.incrementAndGet();
+            task.permits.release();
+        }
+    }
+
+    private long recordLatency(Task task) {
+        long millis = System.currentTimeMillis() - task.startedAt;
+        latencies.add(millis);
+        return millis;
+    }
+
+    private void quarantine(String key, String reason) {
+        try {
+            journal.poisoned(key, reason);
+        } catch (IOException e) {
+            System.err.println("✗ Could not record progress for: " + key);
+        }
+        System.err.println("☣ Quarantined: " + key);
+        System.err.println("  Reason: " + reason);
+        quarantined.add(key);
+    }
+
+    private static void closeQuietly(InvoiceSource source) {
+        try {
+            source.close();
+        } catch (IOException e) {
+            System.err.println("⚠ Could not release: " + source.getName());
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * One file in flight. Exactly one of the worker and the watchdog
+     * settles it, and only the winner records the outcome.
+     */
+    private static class Task {
+        private final InvoiceSource source;
+        private final String key;
+        private final Semaphore permits;
+        private final AtomicBoolean settled = new AtomicBoolean();
+        private int attempts;
+        private volatile long deadline = Long.MAX_VALUE;
+        private volatile long startedAt;
+        private Thread thread;
+
+        Task(InvoiceSource source, int attempts, Semaphore permits) {
+            this.source = source;
+            this.key = source.getName();
+            this.attempts = attempts;
+            this.permits = permits;
+        }
+
+        boolean settle() {
+            return settled.compareAndSet(false, true);
+        }
+
+        boolean isSettled() {
+            return settled.get();
+        }
+    }
+}
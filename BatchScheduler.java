@@ -0,0 +1,78 @@
+package com.invoiceparser.batch;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Orders the files of a batch by estimated cost and assigns them to lanes of
+ * workers, so that large files neither start last nor hold up small ones.
+ */
+public final class BatchScheduler {
+    // Files estimated at this many times the median cost count as large
+    private static final double LARGE_COST_FACTOR = 8;
+
+    /**
+     * Files worked through in order by a dedicated number of workers
+     */
+    public static class Lane {
+        private final List<File> files;
+        private final int parallelism;
+
+        Lane(List<File> files, int parallelism) {
+            this.files = files;
+            this.parallelism = parallelism;
+        }
+
+        public List<File> getFiles() {
+            return files;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+    }
+
+    private BatchScheduler() {
+    }
+
+    /**
+     * Split the inputs into lanes that together use {@code parallelism} workers
+     */
+    public static List<Lane> plan(List<File> inputs, SchedulingPolicy policy, int parallelism, CostEstimator costEstimator) {
+        parallelism = Math.max(1, parallelism);
+        if (policy == SchedulingPolicy.LISTED) {
+            return Collections.singletonList(new Lane(inputs, parallelism));
+        }
+
+        Map<File, Double> costs = new HashMap<>();
+        for (File input : inputs) {
+            costs.put(input, costEstimator.estimate(input));
+        }
+        List<File> sorted = new ArrayList<>(inputs);
+        sorted.sort(Comparator.comparingDouble((File input) -> costs.get(input)).reversed());
+
+        if (policy == SchedulingPolicy.LONGEST_FIRST || parallelism < 2 || sorted.size() < 2) {
+            return Collections.singletonList(new Lane(sorted, parallelism));
+        }
+
+        double median = costs.get(sorted.get(sorted.size() / 2));
+        int large = 0;
+        while (large < sorted.size() && costs.get(sorted.get(large)) > LARGE_COST_FACTOR * median) {
+            large++;
+        }
+        if (large == 0) {
+            return Collections.singletonList(new Lane(sorted, parallelism));
+        }
+
+        int largeParallelism = Math.max(1, parallelism / 4);
+        return Arrays.asList(
+                new Lane(sorted.subList(0, large), largeParallelism),
+                new Lane(sorted.subList(large, sorted.size()), parallelism - largeParallelism));
+    }
+}
@@ -0,0 +1,138 @@
+package com.invoiceparser.batch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Outcome counts of a batch run
+ */
+public class BatchSummary {
+    private int successCount;
+    private int failCount;
+    private int skippedCount;
+    private List<String> quarantined;
+    private long[] fileLatencies;
+    private long startedAt;
+    private long finishedAt;
+
+    public BatchSummary() {
+        this.quarantined = new ArrayList<>();
+        this.fileLatencies = new long[0];
+    }
+
+    public int getSuccessCount() {
+        return successCount;
+    }
+
+    public void setSuccessCount(int successCount) {
+        this.successCount = successCount;
+    }
+
+    public int getFailCount() {
+        return failCount;
+    }
+
+    public void setFailCount(int failCount) {
+        this.failCount = failCount;
+    }
+
+    /**
+     * Inputs skipped because a previous run already finished (or gave up on) them
+     */
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+
+    public void setSkippedCount(int skippedCount) {
+        this.skippedCount = skippedCount;
+    }
+
+    /**
+     * Names of the inputs quarantined for exceeding a time or memory budget
+     */
+    public List<String> getQuarantined() {
+        return quarantined;
+    }
+
+    public void setQuarantined(List<String> quarantined) {
+        this.quarantined = quarantined;
+    }
+
+    /**
+     * Wall-clock milliseconds from start to outcome of every file parsed
+     */
+    public long[] getFileLatencies() {
+        return fileLatencies;
+    }
+
+    public void setFileLatencies(long[] fileLatencies) {
+        this.fileLatencies = fileLatencies;
+    }
+
+    /**
+     * File latency below which the given fraction of files finished, e.g. 0.99 for p99 (0 if none)
+     */
+    public long getLatencyPercentile(double fraction) {
+        if (fileLatencies.length == 0) {
+            return 0;
+        }
+        long[] sorted = fileLatencies.clone();
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(fraction * sorted.length);
+        return sorted[Math.max(0, Math.min(rank, sorted.length) - 1)];
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(long startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(long finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    /**
+     * Milliseconds from the start of the first file to the end of the last
+     */
+    public long getMakespanMillis() {
+        return finishedAt - startedAt;
+    }
+
+    /**
+     * Add the counts of another (partial) batch to this one
+     */
+    public void merge(BatchSummary other) {
+        successCount += other.successCount;
+        failCount += other.failCount;
+        skippedCount += other.skippedCount;
+        quarantined.addAll(other.quarantined);
+
+        long[] latencies = Arrays.copyOf(fileLatencies, fileLatencies.length + other.fileLatencies.length);
+        System.arraycopy(other.fileLatencies, 0, latencies, fileLatencies.length, other.fileLatencies.length);
+        fileLatencies = latencies;
+
+        if (startedAt == 0 || (other.startedAt != 0 && other.startedAt < startedAt)) {
+            startedAt = other.startedAt;
+        }
+        finishedAt = Math.max(finishedAt, other.finishedAt);
+    }
+
+    @Override
+    public String toString() {
+        return "BatchSummary{" +
+                "successCount=" + successCount +
+                ", failCount=" + failCount +
+                ", skippedCount=" + skippedCount +
+                ", quarantined=" + quarantined +
+                ", makespanMillis=" + getMakespanMillis() +
+                '}';
+    }
+}
@@ -1,20 +1,62 @@
 package com.invoiceparser.extractors;
 
+import com.invoiceparser.io.TransientIOException;
 import com.invoiceparser.models.InvoiceData;
 import com.invoiceparser.models.LineItem;
-import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
 import com.opencsv.exceptions.CsvException;
 
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 
 /**
  * Extracts invoice data from CSV files
  */
 public class CSVExtractor {
 
+    // Invoices extracted per task when a file holds many
+    private static final int SEGMENTS_PER_TASK = 64;
+
+    private static final Set<String> INVOICE_NUMBER_KEYS = new HashSet<>(Arrays.asList(
+        "invoice number", "invoice #", "numéro de facture"
+    ));
+
+    // Every key parseMetadata understands
+    private static final Set<String> METADATA_KEYS = new HashSet<>(Arrays.asList(
+        "invoice number", "invoice #", "numéro de facture",
+        "date", "invoice date", "date de facture",
+        "vendor", "vendor name", "fournisseur",
+        "subtotal", "sous-total",
+        "tax", "taxes", "gst", "hst",
+        "total", "grand total"
+    ));
+
+    private final Executor executor;
+
+    public CSVExtractor() {
+        this(null);
+    }
+
+    /**
+     * @param executor extracts the invoices of multi-invoice files in parallel,
+     *                 or null to extract on the calling thread only
+     */
+    public CSVExtractor(Executor executor) {
+        this.executor = executor;
+    }
+
     /**
      * Extract invoice data from a CSV file
      * Expected format:
@@ -22,25 +64,144 @@ public class CSVExtractor {
      * Followed by line items (Description, Quantity, Unit Price, Total)
      */
     public InvoiceData extract(File csvFile) throws IOException, CsvException {
+        try (Reader reader = open(csvFile)) {
+            return extract(reader);
+        }
+    }
+
+    /**
+     * Every row of the content. OpenCSV's reader check would take a failed
+     * read for the end of the input and pass it off as an empty or short file.
+     */
+    private static List<String[]> readAll(Reader csvReader) throws IOException, CsvException {
+        return new CSVReaderBuilder(csvReader).withVerifyReader(false).build().readAll();
+    }
+
+    /**
+     * Read a file in the platform charset, marking read failures transient
+     */
+    private static Reader open(File csvFile) throws IOException {
+        return new InputStreamReader(TransientIOException.guard(csvFile.getName(), new FileInputStream(csvFile)),
+                Charset.defaultCharset());
+    }
+
+    /**
+     * Extract invoice data from CSV content read from a stream (the stream is not closed)
+     */
+    public InvoiceData extract(InputStream csvStream) throws IOException, CsvException {
+        return extract(new InputStreamReader(csvStream, Charset.defaultCharset()));
+    }
+
+    /**
+     * Extract invoice data from CSV content (the reader is not closed)
+     */
+    public InvoiceData extract(Reader csvReader) throws IOException, CsvException {
         InvoiceData invoice = new InvoiceData();
         
-        try (CSVReader reader = new CSVReader(new FileReader(csvFile))) {
-            List<String[]> rows = reader.readAll();
-            
-            if (rows.isEmpty()) {
-                throw new IOException("CSV file is empty");
-            }
-            
-            // Parse metadata from first few rows
-            parseMetadata(rows, invoice);
-            
-            // Parse line items (skip metadata rows)
-            parseLineItems(rows, invoice);
+        // CSVReader.close() would close the caller's reader
+        List<String[]> rows = readAll(csvReader);
+        
+        if (rows.isEmpty()) {
+            throw new IOException("CSV file is empty");
         }
         
+        // Parse metadata from first few rows
+        parseMetadata(rows, invoice);
+        
+        // Parse line items (skip metadata rows)
+        parseLineItems(rows, invoice);
+        
         return invoice;
     }
 
+    /**
+     * Extract every invoice in a CSV file. A new invoice starts at an invoice
+     * number row whose number differs from the current invoice's.
+     */
+    public List<InvoiceData> extractAll(File csvFile) throws IOException, CsvException {
+        try (Reader reader = open(csvFile)) {
+            return extractAll(reader);
+        }
+    }
+
+    /**
+     * Extract every invoice in CSV content read from a stream (the stream is not closed)
+     */
+    public List<InvoiceData> extractAll(InputStream csvStream) throws IOException, CsvException {
+        return extractAll(new InputStreamReader(csvStream, Charset.defaultCharset()));
+    }
+
+    /**
+     * Extract every invoice in CSV content (the reader is not closed)
+     */
+    public List<InvoiceData> extractAll(Reader csvReader) throws IOException, CsvException {
+        // CSVReader.close() would close the caller's reader
+        List<String[]> rows = readAll(csvReader);
+
+        if (rows.isEmpty()) {
+            throw new IOException("CSV file is empty");
+        }
+
+        List<List<String[]>> segments = splitInvoices(rows);
+        List<Callable<List<InvoiceData>>> tasks = new ArrayList<>();
+        for (int start = 0; start < segments.size(); start += SEGMENTS_PER_TASK) {
+            List<List<String[]>> chunk = segments.subList(start, Math.min(start + SEGMENTS_PER_TASK, segments.size()));
+            tasks.add(() -> {
+                List<InvoiceData> invoices = new ArrayList<>(chunk.size());
+                for (List<String[]> segment : chunk) {
+                    InvoiceData invoice = new InvoiceData();
+                    parseMetadata(segment, invoice);
+                    parseLineItems(segment, invoice);
+                    invoices.add(invoice);
+                }
+                return invoices;
+            });
+        }
+
+        List<InvoiceData> invoices = new ArrayList<>(segments.size());
+        for (List<InvoiceData> chunk : ParallelTasks.invokeAll(executor, tasks)) {
+            invoices.addAll(chunk);
+        }
+        return invoices;
+    }
+
+    /**
+     * Split the rows into the row ranges of each invoice (at least one).
+     * Only an invoice number row with a new number starts an invoice, and only
+     * once the current invoice has a number or line items of its own; other
+     * metadata rows (e.g. Subtotal, Tax and Total after the line items) belong
+     * to the current invoice.
+     */
+    private List<List<String[]>> splitInvoices(List<String[]> rows) {
+        List<List<String[]>> segments = new ArrayList<>();
+        int start = 0;
+        String currentNumber = null;
+        boolean inItems = false;
+
+        for (int i = 0; i < rows.size(); i++) {
+            String[] row = rows.get(i);
+            String key = row.length >= 2 ? row[0].trim().toLowerCase() : "";
+            // Line items have a third column; a line item named like a metadata key is no boundary
+            boolean metadata = METADATA_KEYS.contains(key) && (row.length < 3 || row[2].trim().isEmpty());
+            String number = metadata && INVOICE_NUMBER_KEYS.contains(key) ? row[1].trim() : null;
+
+            if (number != null && !number.isEmpty()) {
+                if ((currentNumber != null || inItems) && !number.equals(currentNumber)) {
+                    segments.add(rows.subList(start, i));
+                    start = i;
+                    inItems = false;
+                }
+                currentNumber = number;
+            }
+            if (row.length >= 4 && containsItemHeaders(row)) {
+                inItems = true;
+            }
+        }
+
+        segments.add(rows.subList(start, rows.size()));
+        return segments;
+    }
+
     private void parseMetadata(List<String[]> rows, InvoiceData invoice) {
         // Simple approach: look for key-value pairs in first rows
         for (int i = 0; i < Math.min(10, rows.size()); i++) {
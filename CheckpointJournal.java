@@ -0,0 +1,219 @@
+package com.invoiceparser.batch;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Append-only progress journal for batch runs, used to resume after a crash.
+ *
+ * Every entry is handed to the OS immediately, so a killed JVM loses nothing;
+ * fsync is batched (every {@code syncEvery} entries or {@code syncMillis})
+ * so a large batch does not pay one disk flush per file.
+ *
+ * Line format (tab separated):
+ * <pre>
+ * STARTED  key
+ * DONE     key
+ * FAILED   key  retryable  reason
+ * POISONED key  reason
+ * </pre>
+ */
+public class CheckpointJournal implements AutoCloseable {
+    public static final String DEFAULT_FILE_NAME = ".invoice-parser-journal";
+
+    private static final int DEFAULT_SYNC_EVERY = 64;
+    private static final long DEFAULT_SYNC_MILLIS = 1000;
+
+    /**
+     * Status of an input according to the journal
+     */
+    public enum Status {
+        /** Started but never finished: the process died while handling it */
+        CRASHED,
+        DONE,
+        FAILED,
+        /** Quarantined for exceeding a time or memory budget, never retried */
+        POISONED
+    }
+
+    /**
+     * Last known state of one input
+     */
+    public static class Entry {
+        private Status status;
+        private int attempts;
+        private boolean retryable;
+        private String reason;
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+
+        public boolean isRetryable() {
+            return retryable;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+
+    private final FileOutputStream out;
+    private final FileChannel channel;
+    private final int syncEvery;
+    private final long syncMillis;
+    private int unsyncedEntries;
+    private long lastSync;
+    private Runnable beforeSync = () -> { };
+
+    /**
+     * Open the journal for appending
+     *
+     * @param truncate start a fresh journal instead of appending to an existing one
+     */
+    public CheckpointJournal(File file, boolean truncate) throws IOException {
+        this(file, truncate, DEFAULT_SYNC_EVERY, DEFAULT_SYNC_MILLIS);
+    }
+
+    public CheckpointJournal(File file, boolean truncate, int syncEvery, long syncMillis) throws IOException {
+        this.out = new FileOutputStream(file, !truncate);
+        this.channel = out.getChannel();
+        this.syncEvery = syncEvery;
+        this.syncMillis = syncMillis;
+        this.lastSync = System.currentTimeMillis();
+    }
+
+    /**
+     * Read the last known state of every input recorded in a journal file.
+     * A torn final line (crash mid-write) is ignored.
+     */
+    public static Map<String, Entry> load(File file) throws IOException {
+        Map<String, Entry> entries = new HashMap<>();
+        if (!file.exists()) {
+            return entries;
+        }
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t", 4);
+                if (parts.length < 2) {
+                    continue;
+                }
+
+                Entry entry = entries.computeIfAbsent(parts[1], key -> new Entry());
+                switch (parts[0]) {
+                    case "STARTED":
+                        entry.status = Status.CRASHED;
+                        entry.attempts++;
+                        entry.retryable = true;
+                        entry.reason = "Process stopped while parsing";
+                        break;
+                    case "DONE":
+                        entry.status = Status.DONE;
+                        entry.reason = null;
+                        break;
+                    case "FAILED":
+                        if (parts.length < 4) {
+                            continue;
+                        }
+                        entry.status = Status.FAILED;
+                        entry.retryable = Boolean.parseBoolean(parts[2]);
+                        entry.reason = parts[3];
+                        break;
+                    case "POISONED":
+                        if (parts.length < 3) {
+                            continue;
+                        }
+                        entry.status = Status.POISONED;
+                        entry.retryable = false;
+                        entry.reason = parts[2];
+                        break;
+                    default:
+                        // Unknown or torn line
+                        break;
+                }
+            }
+        }
+
+        // Keys whose only line was torn have no status
+        entries.values().removeIf(entry -> entry.status == null);
+        return entries;
+    }
+
+    public synchronized void started(String key) throws IOException {
+        append("STARTED\t" + clean(key));
+    }
+
+    public synchronized void done(String key) throws IOException {
+        append("DONE\t" + clean(key));
+    }
+
+    public synchronized void failed(String key, boolean retryable, String reason) throws IOException {
+        append("FAILED\t" + clean(key) + "\t" + retryable + "\t" + clean(reason));
+    }
+
+    public synchronized void poisoned(String key, String reason) throws IOException {
+        append("POISONED\t" + clean(key) + "\t" + clean(reason));
+    }
+
+    /**
+     * Run {@code action} before every flush of the journal to disk, e.g. to
+     * persist the outputs its DONE entries vouch for
+     */
+    public synchronized void setBeforeSync(Runnable action) {
+        this.beforeSync = action;
+    }
+
+    /**
+     * Force all journal entries to disk
+     */
+    public synchronized void sync() throws IOException {
+        beforeSync.run();
+        channel.force(false);
+        unsyncedEntries = 0;
+        lastSync = System.currentTimeMillis();
+    }
+
+    private void append(String line) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        unsyncedEntries++;
+        if (unsyncedEntries >= syncEvery || System.currentTimeMillis() - lastSync >= syncMillis) {
+            sync();
+        }
+    }
+
+    private static String clean(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            out.close();
+        }
+    }
+}
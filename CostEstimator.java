@@ -0,0 +1,113 @@
+package com.invoiceparser.batch;
+
+import com.invoiceparser.models.InvoiceData;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Estimates what a file will cost to parse, for scheduling, from its page
+ * count (or size) and the parse times of earlier batches.
+ */
+public class CostEstimator {
+    // Rough size of one page, used when the page count cannot be read cheaply
+    static final long BYTES_PER_PAGE = 64 * 1024;
+
+    // Smaller files are estimated from their size alone
+    private static final long PAGE_SCAN_MIN_BYTES = 1024 * 1024;
+
+    // The page tree root sits near the start (linearized) or the end (incremental saves) of a PDF
+    private static final int SCAN_WINDOW = 64 * 1024;
+
+    // Within one dictionary; the /Kids array in between holds no '<' or '>'
+    private static final Pattern PAGE_COUNT_PATTERN = Pattern.compile(
+        "/Type\\s*/Pages\\b[^<>]*?/Count\\s+(\\d+)|/Count\\s+(\\d+)[^<>]*?/Type\\s*/Pages\\b"
+    );
+
+    private final TimingHistory history;
+    private final Map<String, Double> pagesBySource = new ConcurrentHashMap<>();
+
+    /**
+     * @param history parse times of earlier batches, updated as files finish
+     */
+    public CostEstimator(TimingHistory history) {
+        this.history = history;
+    }
+
+    public TimingHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Estimated parse time in milliseconds; only comparable between files of
+     * one batch while no history has been recorded
+     */
+    public double estimate(File file) {
+        double pages = pagesOf(file);
+        double rate = history.getMillisPerPage(file.getName());
+        return rate > 0 ? pages * rate : pages;
+    }
+
+    /**
+     * Feed the actual parse time of a source back into the history
+     */
+    public void record(String sourceName, long size, List<InvoiceData> invoices, long millis) {
+        Double pages = pagesBySource.get(sourceName);
+        String vendor = invoices.isEmpty() ? null : invoices.get(0).getVendorName();
+        history.record(sourceName, vendor, millis, pages != null ? pages : Math.max(1.0, (double) size / BYTES_PER_PAGE));
+    }
+
+    private double pagesOf(File file) {
+        long size = file.length();
+        double pages = Math.max(1.0, (double) size / BYTES_PER_PAGE);
+        if (size >= PAGE_SCAN_MIN_BYTES && file.getName().toLowerCase().endsWith(".pdf")) {
+            int counted = countPages(file);
+            if (counted > 0) {
+                pages = counted;
+            }
+        }
+        pagesBySource.put(file.getName(), pages);
+        return pages;
+    }
+
+    /**
+     * Page count read from the page tree root without parsing the PDF, by
+     * scanning its first and last bytes; 0 if the root is not found there
+     * (e.g. when it is inside a compressed object stream)
+     */
+    static int countPages(File pdfFile) {
+        try (RandomAccessFile in = new RandomAccessFile(pdfFile, "r")) {
+            int count = countPages(in, 0);
+            if (in.length() > SCAN_WINDOW) {
+                count = Math.max(count, countPages(in, Math.max(SCAN_WINDOW, in.length() - SCAN_WINDOW)));
+            }
+            return count;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static int countPages(RandomAccessFile in, long offset) throws IOException {
+        byte[] window = new byte[(int) Math.min(SCAN_WINDOW, in.length() - offset)];
+        in.seek(offset);
+        in.readFully(window);
+
+        // Intermediate page tree nodes count fewer pages than the root
+        int count = 0;
+        Matcher matcher = PAGE_COUNT_PATTERN.matcher(new String(window, StandardCharsets.ISO_8859_1));
+        while (matcher.find()) {
+            String digits = matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+            if (digits.length() < 9) {
+                count = Math.max(count, Integer.parseInt(digits));
+            }
+        }
+        return count;
+    }
+}
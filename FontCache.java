@@ -0,0 +1,303 @@
+package com.invoiceparser.extractors;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdmodel.DefaultResourceCache;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parsed fonts shared across the documents of a run, so the fonts (and their
+ * embedded CMaps) that many suppliers have in common are parsed once rather
+ * than once per document.
+ *
+ * Fonts are keyed by a hash of their whole dictionary, including the raw
+ * bytes of the embedded font program, so only identical fonts are shared.
+ * PDFont keeps mutable width and glyph caches, so a font is lent to one
+ * document at a time: a document borrows it from the cache and hands it
+ * back once the document is closed. Idle fonts are evicted least recently
+ * used first once their estimated size exceeds the limit.
+ */
+public class FontCache {
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    // Rough in-memory cost of a parsed font beyond its raw font program
+    private static final long FONT_OVERHEAD_BYTES = 16 * 1024;
+    private static final int MAX_DIGEST_DEPTH = 16;
+
+    private final long maxBytes;
+    private final int maxCopiesPerFont;
+    private final LinkedHashMap<String, Deque<CachedFont>> idle = new LinkedHashMap<>(16, 0.75f, true);
+    private long idleBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxBytes estimated memory the idle fonts may take up
+     */
+    public FontCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        // One copy per thread that may be reading a document at the same time
+        this.maxCopiesPerFont = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * A resource cache for one document; install it with
+     * {@code PDDocument.setResourceCache} and close it after the document
+     */
+    public DocumentCache forDocument() {
+        return new DocumentCache();
+    }
+
+    /**
+     * Fonts served from the cache instead of being parsed
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Fonts that had to be parsed
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Estimated memory taken up by idle fonts
+     */
+    public synchronized long getIdleBytes() {
+        return idleBytes;
+    }
+
+    private synchronized CachedFont borrow(String key) {
+        Deque<CachedFont> copies = idle.get(key);
+        if (copies == null) {
+            return null;
+        }
+        CachedFont font = copies.pop();
+        if (copies.isEmpty()) {
+            idle.remove(key);
+        }
+        idleBytes -= font.bytes;
+        return font;
+    }
+
+    private synchronized void giveBack(CachedFont font) {
+        if (font.bytes > maxBytes) {
+            return;
+        }
+        Deque<CachedFont> copies = idle.computeIfAbsent(font.key, key -> new ArrayDeque<>());
+        if (copies.size() >= maxCopiesPerFont) {
+            return;
+        }
+        copies.push(font);
+        idleBytes += font.bytes;
+
+        Iterator<Deque<CachedFont>> eldest = idle.values().iterator();
+        while (idleBytes > maxBytes && eldest.hasNext()) {
+            Deque<CachedFont> evicted = eldest.next();
+            while (!evicted.isEmpty() && idleBytes > maxBytes) {
+                idleBytes -= evicted.removeLast().bytes;
+                evictions.incrementAndGet();
+            }
+            if (evicted.isEmpty()) {
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * Hash a font dictionary and everything it references; returns null for
+     * fonts that cannot outlive their document (Type 3 fonts draw their
+     * glyphs from content streams read on demand)
+     */
+    private static CachedFont describe(COSObject indirect) throws IOException {
+        COSBase base = indirect.getObject();
+        if (!(base instanceof COSDictionary)
+                || COSName.TYPE3.equals(((COSDictionary) base).getCOSName(COSName.SUBTYPE))) {
+            return null;
+        }
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        long[] streamBytes = new long[1];
+        update(digest, base, Collections.newSetFromMap(new IdentityHashMap<>()), 0, streamBytes);
+
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(String.format("%02x", b));
+        }
+        return new CachedFont(key.toString(), FONT_OVERHEAD_BYTES + 2 * streamBytes[0]);
+    }
+
+    private static void update(MessageDigest digest, COSBase base, Set<COSBase> visiting, int depth,
+                               long[] streamBytes) throws IOException {
+        if (base instanceof COSObject) {
+            base = ((COSObject) base).getObject();
+        }
+        if (base == null) {
+            digest.update((byte) 'n');
+            return;
+        }
+        if (depth > MAX_DIGEST_DEPTH || !visiting.add(base)) {
+            // Cyclic or absurdly deep: make the font unique rather than risk a false match
+            digest.update(Long.toString(System.identityHashCode(base)).getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+
+        if (base instanceof COSStream) {
+            updateDictionary(digest, (COSDictionary) base, visiting, depth, streamBytes);
+            digest.update((byte) 's');
+            try (InputStream in = ((COSStream) base).createRawInputStream()) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                    streamBytes[0] += read;
+                }
+            }
+        } else if (base instanceof COSDictionary) {
+            updateDictionary(digest, (COSDictionary) base, visiting, depth, streamBytes);
+        } else if (base instanceof COSArray) {
+            digest.update((byte) '[');
+            for (COSBase element : (COSArray) base) {
+                update(digest, element, visiting, depth + 1, streamBytes);
+            }
+            digest.update((byte) ']');
+        } else if (base instanceof COSString) {
+            digest.update((byte) '(');
+            digest.update(((COSString) base).getBytes());
+            digest.update((byte) ')');
+        } else {
+            // Names, numbers and booleans
+            digest.update(base.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        visiting.remove(base);
+    }
+
+    private static void updateDictionary(MessageDigest digest, COSDictionary dictionary, Set<COSBase> visiting,
+                                         int depth, long[] streamBytes) throws IOException {
+        List<COSName> keys = new ArrayList<>(dictionary.keySet());
+        keys.sort((a, b) -> a.getName().compareTo(b.getName()));
+
+        digest.update((byte) '<');
+        for (COSName key : keys) {
+            if (COSName.LENGTH.equals(key)) {
+                // Differs with the stream's encoding, not its content
+                continue;
+            }
+            digest.update(key.getName().getBytes(StandardCharsets.UTF_8));
+            update(digest, dictionary.getItem(key), visiting, depth + 1, streamBytes);
+        }
+        digest.update((byte) '>');
+    }
+
+    private static class CachedFont {
+        private final String key;
+        private final long bytes;
+        private PDFont font;
+
+        CachedFont(String key, long bytes) {
+            this.key = key;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Per-document resource cache that borrows fonts from the shared cache
+     * and returns them, along with the fonts it parsed itself, when closed
+     */
+    public class DocumentCache extends DefaultResourceCache implements Closeable {
+        private final Map<COSObject, CachedFont> fonts = new HashMap<>();
+
+        @Override
+        public PDFont getFont(COSObject indirect) throws IOException {
+            PDFont font = super.getFont(indirect);
+            if (font != null || fonts.containsKey(indirect)) {
+                return font;
+            }
+
+            CachedFont description;
+            try {
+                description = describe(indirect);
+            } catch (IOException e) {
+                // Unreadable font program: let PDFBox load the font (or report it) uncached
+                description = null;
+            }
+            fonts.put(indirect, null);
+            if (description == null) {
+                return null;
+            }
+
+            CachedFont cached = borrow(description.key);
+            if (cached == null) {
+                // Remember the key so the font PDFBox parses next can be handed back
+                fonts.put(indirect, description);
+                misses.incrementAndGet();
+                return null;
+            }
+
+            hits.incrementAndGet();
+            fonts.put(indirect, cached);
+            super.put(indirect, cached.font);
+            return cached.font;
+        }
+
+        @Override
+        public void put(COSObject indirect, PDFont font) throws IOException {
+            super.put(indirect, font);
+            CachedFont description = fonts.get(indirect);
+            if (description != null && description.font == null) {
+                description.font = font;
+            }
+        }
+
+        /**
+         * Hand this document's fonts to the cache; call after closing the document
+         */
+        @Override
+        public void close() {
+            for (CachedFont font : fonts.values()) {
+                if (font != null && font.font != null) {
+                    giveBack(font);
+                }
+            }
+            fonts.clear();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.invoiceparser.reports;
+
+import com.invoiceparser.models.InvoiceData;
+
+/**
+ * Running totals for one group of invoices (a vendor or a month)
+ */
+public class GroupTotals {
+    private final String key;
+    private long invoiceCount;
+    private long lineItemCount;
+    private double subtotal;
+    private double taxAmount;
+    private double totalAmount;
+
+    public GroupTotals(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Add a single invoice to the running totals
+     */
+    public void add(InvoiceData invoice) {
+        invoiceCount++;
+        lineItemCount += invoice.getItems().size();
+        subtotal += invoice.getSubtotal();
+        taxAmount += invoice.getTaxAmount();
+        totalAmount += invoice.getTotalAmount();
+    }
+
+    /**
+     * Fold another partial result for the same key into this one
+     */
+    public void merge(GroupTotals other) {
+        invoiceCount += other.invoiceCount;
+        lineItemCount += other.lineItemCount;
+        subtotal += other.subtotal;
+        taxAmount += other.taxAmount;
+        totalAmount += other.totalAmount;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getInvoiceCount() {
+        return invoiceCount;
+    }
+
+    public long getLineItemCount() {
+        return lineItemCount;
+    }
+
+    public double getSubtotal() {
+        return subtotal;
+    }
+
+    public double getTaxAmount() {
+        return taxAmount;
+    }
+
+    public double getTotalAmount() {
+        return totalAmount;
+    }
+
+    @Override
+    public String toString() {
+        return "GroupTotals{" +
+                "key='" + key + '\'' +
+                ", invoiceCount=" + invoiceCount +
+                ", lineItemCount=" + lineItemCount +
+                ", subtotal=" + subtotal +
+                ", taxAmount=" + taxAmount +
+                ", totalAmount=" + totalAmount +
+                '}';
+    }
+}
@@ -0,0 +1,41 @@
+package com.invoiceparser.extractors;
+
+/**
+ * CharSequence wrapper that lets a runaway regex be cancelled.
+ * java.util.regex never checks for interrupts on its own, so a backtracking
+ * pattern on adversarial text would otherwise ignore Future.cancel(true).
+ */
+public class InterruptibleCharSequence implements CharSequence {
+    private static final int CHECK_INTERVAL_MASK = 0x3FF;
+
+    private final CharSequence inner;
+    private int reads;
+
+    public InterruptibleCharSequence(CharSequence inner) {
+        this.inner = inner;
+    }
+
+    @Override
+    public char charAt(int index) {
+        // Checking the interrupt flag on every read would dominate matching time
+        if ((++reads & CHECK_INTERVAL_MASK) == 0 && Thread.currentThread().isInterrupted()) {
+            throw new IllegalStateException("Pattern matching interrupted");
+        }
+        return inner.charAt(index);
+    }
+
+    @Override
+    public int length() {
+        return inner.length();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new InterruptibleCharSequence(inner.subSequence(start, end));
+    }
+
+    @Override
+    public String toString() {
+        return inner.toString();
+    }
+}
@@ -0,0 +1,202 @@
+package com.invoiceparser.reports;
+
+import com.invoiceparser.models.InvoiceData;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collector;
+
+/**
+ * Aggregates parsed invoices into per-vendor or per-month totals.
+ * Not thread-safe: parallel callers should give each thread its own
+ * aggregator and combine them with {@link #merge}, or use {@link #collector}.
+ */
+public class InvoiceAggregator {
+
+    /**
+     * Supported grouping keys
+     */
+    public enum GroupBy {
+        VENDOR,
+        MONTH;
+
+        public static GroupBy fromString(String value) {
+            switch (value.toLowerCase()) {
+                case "vendor":
+                    return VENDOR;
+                case "month":
+                    return MONTH;
+                default:
+                    throw new IllegalArgumentException("Unsupported report grouping: " + value + ". Use 'vendor' or 'month'.");
+            }
+        }
+    }
+
+    /**
+     * How to read ambiguous slash and dash dates such as 03/04/2024
+     */
+    public enum DateOrder {
+        MONTH_FIRST,
+        DAY_FIRST;
+
+        public static DateOrder fromString(String value) {
+            switch (value.toLowerCase()) {
+                case "mdy":
+                    return MONTH_FIRST;
+                case "dmy":
+                    return DAY_FIRST;
+                default:
+                    throw new IllegalArgumentException("Unsupported date order: " + value + ". Use 'mdy' or 'dmy'.");
+            }
+        }
+    }
+
+    static final String UNKNOWN_KEY = "N/A";
+
+    private static final Pattern ISO_DATE_PATTERN = Pattern.compile("(\\d{4})-(\\d{2})-\\d{2}");
+    private static final Pattern NUMERIC_DATE_PATTERN = Pattern.compile("(\\d{1,2})[/-](\\d{1,2})[/-](\\d{4})");
+
+    private final GroupBy groupBy;
+    private final DateOrder dateOrder;
+    private final Map<String, GroupTotals> groups;
+    private final GroupTotals grandTotal;
+
+    public InvoiceAggregator(GroupBy groupBy) {
+        this(groupBy, DateOrder.MONTH_FIRST);
+    }
+
+    /**
+     * @param dateOrder how to read slash and dash dates when grouping by month
+     */
+    public InvoiceAggregator(GroupBy groupBy, DateOrder dateOrder) {
+        this.groupBy = groupBy;
+        this.dateOrder = dateOrder;
+        this.groups = new HashMap<>();
+        this.grandTotal = new GroupTotals("TOTAL");
+    }
+
+    /**
+     * Collector for parallel reduction over a stream of invoices
+     */
+    public static Collector<InvoiceData, ?, InvoiceAggregator> collector(GroupBy groupBy) {
+        return collector(groupBy, DateOrder.MONTH_FIRST);
+    }
+
+    /**
+     * Collector for parallel reduction over a stream of invoices
+     */
+    public static Collector<InvoiceData, ?, InvoiceAggregator> collector(GroupBy groupBy, DateOrder dateOrder) {
+        return Collector.of(
+            () -> new InvoiceAggregator(groupBy, dateOrder),
+            InvoiceAggregator::accept,
+            InvoiceAggregator::merge,
+            Collector.Characteristics.UNORDERED
+        );
+    }
+
+    /**
+     * Add a parsed invoice to its group
+     */
+    public void accept(InvoiceData invoice) {
+        groups.computeIfAbsent(keyOf(invoice), GroupTotals::new).add(invoice);
+        grandTotal.add(invoice);
+    }
+
+    /**
+     * Combine the partial totals of another aggregator into this one
+     */
+    public InvoiceAggregator merge(InvoiceAggregator other) {
+        if (other.groupBy != groupBy) {
+            throw new IllegalArgumentException("Cannot merge " + other.groupBy + " totals into " + groupBy + " totals");
+        }
+        for (GroupTotals totals : other.groups.values()) {
+            groups.computeIfAbsent(totals.getKey(), GroupTotals::new).merge(totals);
+        }
+        grandTotal.merge(other.grandTotal);
+        return this;
+    }
+
+    /**
+     * Fold in the totals of one group computed elsewhere (e.g. by another worker)
+     */
+    public void addTotals(GroupTotals totals) {
+        groups.computeIfAbsent(totals.getKey(), GroupTotals::new).merge(totals);
+        grandTotal.merge(totals);
+    }
+
+    public GroupBy getGroupBy() {
+        return groupBy;
+    }
+
+    public DateOrder getDateOrder() {
+        return dateOrder;
+    }
+
+    public GroupTotals getGrandTotal() {
+        return grandTotal;
+    }
+
+    /**
+     * All groups ordered by key
+     */
+    public List<GroupTotals> getGroups() {
+        List<GroupTotals> sorted = new ArrayList<>(groups.values());
+        sorted.sort(Comparator.comparing(GroupTotals::getKey));
+        return sorted;
+    }
+
+    /**
+     * The N groups with the highest total amount (all groups if n <= 0)
+     */
+    public List<GroupTotals> top(int n) {
+        List<GroupTotals> sorted = new ArrayList<>(groups.values());
+        sorted.sort(Comparator.comparingDouble(GroupTotals::getTotalAmount).reversed()
+                .thenComparing(GroupTotals::getKey));
+        if (n > 0 && n < sorted.size()) {
+            return new ArrayList<>(sorted.subList(0, n));
+        }
+        return sorted;
+    }
+
+    private String keyOf(InvoiceData invoice) {
+        String key = groupBy == GroupBy.VENDOR
+                ? invoice.getVendorName()
+                : monthOf(invoice.getInvoiceDate(), dateOrder);
+        return key == null || key.trim().isEmpty() ? UNKNOWN_KEY : key.trim();
+    }
+
+    /**
+     * Normalize an extracted date to a yyyy-MM month key.
+     * Slash and dash dates are read in the given order, unless one of the
+     * first two fields is above 12 and so can only be the day.
+     */
+    static String monthOf(String date, DateOrder order) {
+        if (date == null) {
+            return UNKNOWN_KEY;
+        }
+
+        Matcher matcher = ISO_DATE_PATTERN.matcher(date);
+        if (matcher.find()) {
+            return matcher.group(1) + "-" + matcher.group(2);
+        }
+
+        matcher = NUMERIC_DATE_PATTERN.matcher(date);
+        if (matcher.find()) {
+            int first = Integer.parseInt(matcher.group(1));
+            int second = Integer.parseInt(matcher.group(2));
+            boolean dayFirst = first > 12 || (order == DateOrder.DAY_FIRST && second <= 12);
+            int month = dayFirst ? second : first;
+            if (month < 1 || month > 12) {
+                return UNKNOWN_KEY;
+            }
+            return matcher.group(3) + "-" + String.format("%02d", month);
+        }
+
+        return UNKNOWN_KEY;
+    }
+}
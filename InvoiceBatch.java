@@ -0,0 +1,478 @@
+package com.invoiceparser.models;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.stream.Collector;
+
+/**
+ * Compact, append-only list of invoices for holding very large batches in memory.
+ *
+ * Fields are stored column by column in primitive arrays rather than as one
+ * object per invoice and line item. Vendor, customer, date and description
+ * strings are replaced by codes into a shared dictionary, so a value repeated
+ * across a million invoices is stored once. Invoice numbers, which rarely
+ * repeat, are packed as UTF-8 into one byte array. Amounts are held as longs
+ * in units of 1/{@value #AMOUNT_SCALE}, so values with more decimals are rounded;
+ * amounts that are not finite or exceed {@link #MAX_AMOUNT} are rejected.
+ *
+ * {@link #get} returns a read-only {@link InvoiceData} view whose setters throw;
+ * views are created on access and hold no state of their own. Not thread-safe:
+ * parallel callers should fill one batch per thread and combine them with
+ * {@link #merge}, or use {@link #collector}.
+ */
+public class InvoiceBatch extends AbstractList<InvoiceData> implements RandomAccess {
+
+    /**
+     * Amounts are stored as multiples of 1/AMOUNT_SCALE
+     */
+    public static final int AMOUNT_SCALE = 10_000;
+
+    /**
+     * Largest amount, positive or negative, that fits in the amount columns
+     */
+    public static final double MAX_AMOUNT = Long.MAX_VALUE / AMOUNT_SCALE;
+
+    private static final int NO_STRING = -1;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final StringDictionary dictionary = new StringDictionary();
+
+    // Invoice columns
+    private int size;
+    private int[] invoiceDates;
+    private int[] vendorNames;
+    private int[] vendorAddresses;
+    private int[] customerNames;
+    private int[] customerAddresses;
+    private long[] subtotals;
+    private long[] taxAmounts;
+    private long[] totalAmounts;
+    private int[] firstItems;
+
+    // Invoice numbers as UTF-8, invoice i spanning numberOffsets[i] to numberOffsets[i + 1]
+    private byte[] numberBytes;
+    private int[] numberOffsets;
+    private final BitSet nullNumbers = new BitSet();
+
+    // Line item columns, shared by all invoices in order
+    private int itemCount;
+    private int[] descriptions;
+    private int[] quantities;
+    private long[] unitPrices;
+    private long[] lineTotals;
+
+    public InvoiceBatch() {
+        this(DEFAULT_CAPACITY, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedInvoices number of invoices to allocate room for
+     * @param expectedItems    total number of line items to allocate room for
+     */
+    public InvoiceBatch(int expectedInvoices, int expectedItems) {
+        int invoices = Math.max(1, expectedInvoices);
+        int items = Math.max(1, expectedItems);
+
+        invoiceDates = new int[invoices];
+        vendorNames = new int[invoices];
+        vendorAddresses = new int[invoices];
+        customerNames = new int[invoices];
+        customerAddresses = new int[invoices];
+        subtotals = new long[invoices];
+        taxAmounts = new long[invoices];
+        totalAmounts = new long[invoices];
+        firstItems = new int[invoices + 1];
+        numberOffsets = new int[invoices + 1];
+        numberBytes = new byte[invoices * 8];
+
+        descriptions = new int[items];
+        quantities = new int[items];
+        unitPrices = new long[items];
+        lineTotals = new long[items];
+    }
+
+    /**
+     * Collector for parallel reduction over a stream of invoices
+     */
+    public static Collector<InvoiceData, ?, InvoiceBatch> collector() {
+        return Collector.of(InvoiceBatch::new, InvoiceBatch::add, InvoiceBatch::merge);
+    }
+
+    /**
+     * Copy an invoice into the batch; later changes to {@code invoice} are not seen
+     *
+     * @throws IllegalArgumentException if an amount is not finite or exceeds
+     *                                  {@link #MAX_AMOUNT}; the batch is left unchanged
+     */
+    @Override
+    public boolean add(InvoiceData invoice) {
+        List<LineItem> items = invoice.getItems() != null ? invoice.getItems() : List.of();
+        long subtotal = toUnits(invoice.getSubtotal());
+        long taxAmount = toUnits(invoice.getTaxAmount());
+        long totalAmount = toUnits(invoice.getTotalAmount());
+        ensureInvoiceCapacity(size + 1);
+        ensureItemCapacity(itemCount + items.size());
+
+        // Amounts first, past the end of the item columns, so a bad one leaves no trace
+        int end = itemCount;
+        for (LineItem item : items) {
+            quantities[end] = item.getQuantity();
+            unitPrices[end] = toUnits(item.getUnitPrice());
+            lineTotals[end] = toUnits(item.getLineTotal());
+            end++;
+        }
+        for (LineItem item : items) {
+            descriptions[itemCount++] = dictionary.encode(item.getDescription());
+        }
+
+        int i = size;
+        appendNumber(i, invoice.getInvoiceNumber());
+        invoiceDates[i] = dictionary.encode(invoice.getInvoiceDate());
+        vendorNames[i] = dictionary.encode(invoice.getVendorName());
+        vendorAddresses[i] = dictionary.encode(invoice.getVendorAddress());
+        customerNames[i] = dictionary.encode(invoice.getCustomerName());
+        customerAddresses[i] = dictionary.encode(invoice.getCustomerAddress());
+        subtotals[i] = subtotal;
+        taxAmounts[i] = taxAmount;
+        totalAmounts[i] = totalAmount;
+        firstItems[i + 1] = itemCount;
+
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends InvoiceData> invoices) {
+        if (invoices == this) {
+            // Appending the batch to itself: copy the invoices it holds now
+            int count = size;
+            ensureInvoiceCapacity(size + count);
+            for (int i = 0; i < count; i++) {
+                add(get(i));
+            }
+            return count > 0;
+        }
+        ensureInvoiceCapacity(size + invoices.size());
+        for (InvoiceData invoice : invoices) {
+            add(invoice);
+        }
+        return !invoices.isEmpty();
+    }
+
+    /**
+     * Append the invoices of another batch (or of this one, doubling it) to this one
+     */
+    public InvoiceBatch merge(InvoiceBatch other) {
+        addAll(other);
+        return this;
+    }
+
+    /**
+     * Read-only view of the invoice at {@code index}
+     */
+    @Override
+    public InvoiceData get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return new InvoiceView(index);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Total number of line items across all invoices
+     */
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * Number of distinct vendor, customer, date and description values stored
+     */
+    public int getDistinctStrings() {
+        return dictionary.size();
+    }
+
+    /**
+     * Release spare capacity once the batch is complete
+     */
+    public void trimToSize() {
+        invoiceDates = Arrays.copyOf(invoiceDates, Math.max(1, size));
+        vendorNames = Arrays.copyOf(vendorNames, Math.max(1, size));
+        vendorAddresses = Arrays.copyOf(vendorAddresses, Math.max(1, size));
+        customerNames = Arrays.copyOf(customerNames, Math.max(1, size));
+        customerAddresses = Arrays.copyOf(customerAddresses, Math.max(1, size));
+        subtotals = Arrays.copyOf(subtotals, Math.max(1, size));
+        taxAmounts = Arrays.copyOf(taxAmounts, Math.max(1, size));
+        totalAmounts = Arrays.copyOf(totalAmounts, Math.max(1, size));
+        firstItems = Arrays.copyOf(firstItems, size + 1);
+        numberOffsets = Arrays.copyOf(numberOffsets, size + 1);
+        numberBytes = Arrays.copyOf(numberBytes, Math.max(1, numberOffsets[size]));
+
+        descriptions = Arrays.copyOf(descriptions, Math.max(1, itemCount));
+        quantities = Arrays.copyOf(quantities, Math.max(1, itemCount));
+        unitPrices = Arrays.copyOf(unitPrices, Math.max(1, itemCount));
+        lineTotals = Arrays.copyOf(lineTotals, Math.max(1, itemCount));
+
+        dictionary.trimToSize();
+    }
+
+    private void appendNumber(int i, String number) {
+        int start = numberOffsets[i];
+        if (number == null) {
+            nullNumbers.set(i);
+            numberOffsets[i + 1] = start;
+            return;
+        }
+
+        byte[] bytes = number.getBytes(StandardCharsets.UTF_8);
+        if (start + bytes.length > numberBytes.length) {
+            numberBytes = Arrays.copyOf(numberBytes, grow(numberBytes.length, start + bytes.length));
+        }
+        System.arraycopy(bytes, 0, numberBytes, start, bytes.length);
+        numberOffsets[i + 1] = start + bytes.length;
+    }
+
+    private String number(int i) {
+        if (nullNumbers.get(i)) {
+            return null;
+        }
+        int start = numberOffsets[i];
+        return new String(numberBytes, start, numberOffsets[i + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    private void ensureInvoiceCapacity(int capacity) {
+        if (capacity <= invoiceDates.length) {
+            return;
+        }
+        int grown = grow(invoiceDates.length, capacity);
+        invoiceDates = Arrays.copyOf(invoiceDates, grown);
+        vendorNames = Arrays.copyOf(vendorNames, grown);
+        vendorAddresses = Arrays.copyOf(vendorAddresses, grown);
+        customerNames = Arrays.copyOf(customerNames, grown);
+        customerAddresses = Arrays.copyOf(customerAddresses, grown);
+        subtotals = Arrays.copyOf(subtotals, grown);
+        taxAmounts = Arrays.copyOf(taxAmounts, grown);
+        totalAmounts = Arrays.copyOf(totalAmounts, grown);
+        firstItems = Arrays.copyOf(firstItems, grown + 1);
+        numberOffsets = Arrays.copyOf(numberOffsets, grown + 1);
+    }
+
+    private void ensureItemCapacity(int capacity) {
+        if (capacity <= descriptions.length) {
+            return;
+        }
+        int grown = grow(descriptions.length, capacity);
+        descriptions = Arrays.copyOf(descriptions, grown);
+        quantities = Arrays.copyOf(quantities, grown);
+        unitPrices = Arrays.copyOf(unitPrices, grown);
+        lineTotals = Arrays.copyOf(lineTotals, grown);
+    }
+
+    private static int grow(int current, int required) {
+        long grown = Math.max(required, current + (current >> 1));
+        if (grown > Integer.MAX_VALUE - 8) {
+            if (required > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("InvoiceBatch cannot hold more than " + (Integer.MAX_VALUE - 8) + " entries");
+            }
+            grown = Integer.MAX_VALUE - 8;
+        }
+        return (int) grown;
+    }
+
+    private static long toUnits(double amount) {
+        if (!(Math.abs(amount) <= MAX_AMOUNT)) {
+            throw new IllegalArgumentException("Amount " + amount + " cannot be stored in an InvoiceBatch (limit "
+                    + MAX_AMOUNT + ")");
+        }
+        return Math.round(amount * AMOUNT_SCALE);
+    }
+
+    private static double fromUnits(long units) {
+        return (double) units / AMOUNT_SCALE;
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Invoices in an InvoiceBatch are read-only");
+    }
+
+    /**
+     * Interns repeated strings as int codes
+     */
+    private static class StringDictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final ArrayList<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            if (value == null) {
+                return NO_STRING;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        String decode(int code) {
+            return code == NO_STRING ? null : values.get(code);
+        }
+
+        int size() {
+            return values.size();
+        }
+
+        void trimToSize() {
+            values.trimToSize();
+        }
+    }
+
+    /**
+     * Read-only invoice backed by the batch columns. Fields are filled in from
+     * the columns when the view is created, so existing code (and Gson) that
+     * reads an InvoiceData sees the same values as through the getters.
+     */
+    private class InvoiceView extends InvoiceData {
+
+        InvoiceView(int index) {
+            super.setInvoiceNumber(number(index));
+            super.setInvoiceDate(dictionary.decode(invoiceDates[index]));
+            super.setVendorName(dictionary.decode(vendorNames[index]));
+            super.setVendorAddress(dictionary.decode(vendorAddresses[index]));
+            super.setCustomerName(dictionary.decode(customerNames[index]));
+            super.setCustomerAddress(dictionary.decode(customerAddresses[index]));
+            super.setSubtotal(fromUnits(subtotals[index]));
+            super.setTaxAmount(fromUnits(taxAmounts[index]));
+            super.setTotalAmount(fromUnits(totalAmounts[index]));
+            super.setItems(new ItemList(firstItems[index], firstItems[index + 1]));
+        }
+
+        @Override
+        public void setInvoiceNumber(String invoiceNumber) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setInvoiceDate(String invoiceDate) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setVendorName(String vendorName) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setVendorAddress(String vendorAddress) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setCustomerName(String customerName) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setCustomerAddress(String customerAddress) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setSubtotal(double subtotal) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setTaxAmount(double taxAmount) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setTotalAmount(double totalAmount) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setItems(List<LineItem> items) {
+            throw readOnly();
+        }
+
+        @Override
+        public void addItem(LineItem item) {
+            throw readOnly();
+        }
+    }
+
+    /**
+     * Line items {@code from} (inclusive) to {@code to} (exclusive) of the item columns
+     */
+    private class ItemList extends AbstractList<LineItem> implements RandomAccess {
+        private final int from;
+        private final int to;
+
+        ItemList(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public LineItem get(int index) {
+            if (index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + (to - from));
+            }
+            int j = from + index;
+            return new ItemView(dictionary.decode(descriptions[j]), quantities[j],
+                    fromUnits(unitPrices[j]), fromUnits(lineTotals[j]));
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
+    /**
+     * Read-only line item copied out of the item columns
+     */
+    private static class ItemView extends LineItem {
+
+        ItemView(String description, int quantity, double unitPrice, double lineTotal) {
+            super(description, quantity, unitPrice, lineTotal);
+        }
+
+        @Override
+        public void setDescription(String description) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setQuantity(int quantity) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setUnitPrice(double unitPrice) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setLineTotal(double lineTotal) {
+            throw readOnly();
+        }
+    }
+}
@@ -108,9 +108,14 @@ public class InvoiceData {
     }
 
     /**
-     * Validates that subtotal + tax = total (within small margin for rounding)
+     * Validates that subtotal + tax = total (within small margin for rounding).
+     * An invoice with no total (e.g. nothing could be extracted) is not valid;
+     * credit notes with a negative total are.
      */
     public boolean isValid() {
+        if (totalAmount == 0) {
+            return false;
+        }
         double calculatedTotal = subtotal + taxAmount;
         return Math.abs(calculatedTotal - totalAmount) < 0.01;
     }
@@ -1,29 +1,88 @@
 package com.invoiceparser;
 
+import com.invoiceparser.batch.BatchOptions;
+import com.invoiceparser.batch.BatchRunner;
+import com.invoiceparser.batch.BatchScheduler;
+import com.invoiceparser.batch.BatchSummary;
+import com.invoiceparser.batch.CheckpointJournal;
+import com.invoiceparser.batch.CostEstimator;
+import com.invoiceparser.batch.RetryPolicy;
+import com.invoiceparser.batch.ShardCoordinator;
+import com.invoiceparser.batch.TimingHistory;
 import com.invoiceparser.extractors.CSVExtractor;
+import com.invoiceparser.extractors.FontCache;
+import com.invoiceparser.extractors.OcrExtractor;
 import com.invoiceparser.extractors.PDFExtractor;
 import com.invoiceparser.formatters.OutputFormatter;
+import com.invoiceparser.io.ArchiveReader;
+import com.invoiceparser.io.BatchInputs;
+import com.invoiceparser.io.InvoiceSource;
+import com.invoiceparser.io.TransientIOException;
 import com.invoiceparser.models.InvoiceData;
+import com.invoiceparser.reports.GroupTotals;
+import com.invoiceparser.reports.InvoiceAggregator;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
 
 /**
  * Main parser class that orchestrates invoice extraction and formatting
  */
-public class InvoiceParser {
+public class InvoiceParser implements AutoCloseable {
     private final PDFExtractor pdfExtractor;
     private final CSVExtractor csvExtractor;
     private final OutputFormatter outputFormatter;
+    private final OcrExtractor ocrExtractor;
 
     public InvoiceParser() {
-        this.pdfExtractor = new PDFExtractor();
-        this.csvExtractor = new CSVExtractor();
+        this(null);
+    }
+
+    /**
+     * @param ocrExtractor OCR fallback for scanned PDFs, or null to disable OCR
+     */
+    public InvoiceParser(OcrExtractor ocrExtractor) {
+        this(ocrExtractor, 0);
+    }
+
+    /**
+     * @param ocrExtractor      OCR fallback for scanned PDFs, or null to disable OCR
+     * @param maxDocumentMemory bytes of stream data a single PDF may buffer (0 = unlimited)
+     */
+    public InvoiceParser(OcrExtractor ocrExtractor, long maxDocumentMemory) {
+        this(ocrExtractor, maxDocumentMemory, new FontCache(FontCache.DEFAULT_MAX_BYTES));
+    }
+
+    /**
+     * @param ocrExtractor      OCR fallback for scanned PDFs, or null to disable OCR
+     * @param maxDocumentMemory bytes of stream data a single PDF may buffer (0 = unlimited)
+     * @param fontCache         parsed fonts shared by all PDFs parsed, or null to disable sharing
+     */
+    public InvoiceParser(OcrExtractor ocrExtractor, long maxDocumentMemory, FontCache fontCache) {
+        this.ocrExtractor = ocrExtractor;
+        // Long documents are split into page ranges and invoices on the common pool
+        this.pdfExtractor = new PDFExtractor(ocrExtractor, maxDocumentMemory, ForkJoinPool.commonPool(), fontCache);
+        this.csvExtractor = new CSVExtractor(ForkJoinPool.commonPool());
         this.outputFormatter = new OutputFormatter();
     }
 
     /**
-     * Parse an invoice file and return structured data
+     * Parse an invoice file and return structured data, treating the whole
+     * file as one invoice (see {@link #parseAll(File)} for statements)
      */
     public InvoiceData parse(File file) throws Exception {
         if (!file.exists()) {
@@ -42,78 +101,573 @@ public class InvoiceParser {
     }
 
     /**
-     * Parse invoice and save to output file
+     * Parse an invoice from any source (file, buffer or stream).
+     * The format is chosen from the source name's extension.
      */
-    public void parseAndSave(File inputFile, File outputFile, String format) throws Exception {
-        InvoiceData invoice = parse(inputFile);
-        
-        format = format.toLowerCase();
-        
+    public InvoiceData parse(InvoiceSource source) throws Exception {
+        if (source.getFile() != null) {
+            return parse(source.getFile());
+        }
+
+        if (source.isPdf()) {
+            try (InputStream in = source.openStream()) {
+                return pdfExtractor.extract(in);
+            }
+        } else if (source.isCsv()) {
+            try (InputStream in = source.openStream()) {
+                return csvExtractor.extract(in);
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported file format. Only PDF and CSV are supported.");
+        }
+    }
+
+    /**
+     * Parse every invoice in a file; statements holding many invoices are
+     * split into one InvoiceData per invoice
+     */
+    public List<InvoiceData> parseAll(File file) throws Exception {
+        if (!file.exists()) {
+            throw new IOException("File not found: " + file.getAbsolutePath());
+        }
+
+        String fileName = file.getName().toLowerCase();
+
+        if (fileName.endsWith(".pdf")) {
+            return pdfExtractor.extractAll(file);
+        } else if (fileName.endsWith(".csv")) {
+            return csvExtractor.extractAll(file);
+        } else {
+            throw new IllegalArgumentException("Unsupported file format. Only PDF and CSV are supported.");
+        }
+    }
+
+    /**
+     * Parse every invoice in any source (file, buffer or stream)
+     */
+    public List<InvoiceData> parseAll(InvoiceSource source) throws Exception {
+        if (source.getFile() != null) {
+            return parseAll(source.getFile());
+        }
+
+        if (source.isPdf()) {
+            try (InputStream in = source.openStream()) {
+                return pdfExtractor.extractAll(in);
+            }
+        } else if (source.isCsv()) {
+            try (InputStream in = source.openStream()) {
+                return csvExtractor.extractAll(in);
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported file format. Only PDF and CSV are supported.");
+        }
+    }
+
+    /**
+     * Publish parse results for a sequence of sources without blocking the caller.
+     * Sources are pulled only as subscribers request results, parsed on the
+     * common pool with up to one task per processor, and closed once parsed.
+     */
+    public InvoicePublisher publish(Iterable<InvoiceSource> sources) {
+        return publish(sources, ForkJoinPool.commonPool(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Publish parse results for a sequence of sources on the given executor
+     *
+     * @param parallelism maximum number of sources parsed at once per subscriber
+     */
+    public InvoicePublisher publish(Iterable<InvoiceSource> sources, Executor executor, int parallelism) {
+        return new InvoicePublisher(this, sources, executor, parallelism);
+    }
+
+    /**
+     * Parse invoice and save to output file, returning the parsed data
+     */
+    public InvoiceData parseAndSave(File inputFile, File outputFile, String format) throws Exception {
+        return parseAndSave(InvoiceSource.of(inputFile), outputFile, format);
+    }
+
+    /**
+     * Parse an invoice from any source and save it to output file, returning the parsed data
+     */
+    public InvoiceData parseAndSave(InvoiceSource source, File outputFile, String format) throws Exception {
+        InvoiceData invoice = parse(source);
+        save(invoice, outputFile, format);
+        outputFormatter.syncDirectories();
+        return invoice;
+    }
+
+    /**
+     * Parse every invoice in a source and save them, returning the parsed data.
+     * A single invoice is saved to the output file; several are saved as
+     * {@code <name>-1.json}, {@code <name>-2.json}, ... next to it.
+     */
+    public List<InvoiceData> parseAllAndSave(InvoiceSource source, File outputFile, String format) throws Exception {
+        List<InvoiceData> invoices = parseAndSave(source, outputFile, format, true, () -> false);
+        outputFormatter.syncDirectories();
+        return invoices;
+    }
+
+    /**
+     * Parse and save the whole source as one invoice, or every invoice in it
+     * if {@code split}, writing nothing once {@code cancelled} turns true
+     */
+    private List<InvoiceData> parseAndSave(InvoiceSource source, File outputFile, String format, boolean split,
+                                           BooleanSupplier cancelled) throws Exception {
+        List<InvoiceData> invoices = split ? parseAll(source) : Collections.singletonList(parse(source));
+
+        if (invoices.size() == 1) {
+            save(invoices.get(0), outputFile, format, cancelled);
+        } else {
+            for (int i = 0; i < invoices.size(); i++) {
+                save(invoices.get(i), numberedOutputFile(outputFile, i + 1), format, cancelled);
+            }
+        }
+
+        return invoices;
+    }
+
+    private void save(InvoiceData invoice, File outputFile, String format) throws IOException {
+        save(invoice, outputFile, format, () -> false);
+    }
+
+    private void save(InvoiceData invoice, File outputFile, String format, BooleanSupplier cancelled) throws IOException {
+        try {
+            write(invoice, outputFile, format.toLowerCase(), cancelled);
+        } catch (IOException e) {
+            // The invoice is in memory: a failure here is the disk's, not the input's
+            throw TransientIOException.of(outputFile.getName(), e);
+        }
+    }
+
+    private void write(InvoiceData invoice, File outputFile, String format, BooleanSupplier cancelled) throws IOException {
         switch (format) {
             case "json":
-                outputFormatter.writeJson(invoice, outputFile.getAbsolutePath());
+                outputFormatter.writeJson(invoice, outputFile.getAbsolutePath(), cancelled);
                 break;
             case "csv":
-                outputFormatter.writeCsv(invoice, outputFile.getAbsolutePath());
+                outputFormatter.writeCsv(invoice, outputFile.getAbsolutePath(), cancelled);
                 break;
             case "both":
                 // Save both formats
                 String basePath = outputFile.getAbsolutePath();
                 String jsonPath = basePath.replaceAll("\\.\\w+$", ".json");
                 String csvPath = basePath.replaceAll("\\.\\w+$", ".csv");
-                outputFormatter.writeJson(invoice, jsonPath);
-                outputFormatter.writeCsv(invoice, csvPath);
+                outputFormatter.writeJson(invoice, jsonPath, cancelled);
+                outputFormatter.writeCsv(invoice, csvPath, cancelled);
                 break;
             default:
                 throw new IllegalArgumentException("Unsupported output format: " + format + ". Use 'json', 'csv', or 'both'.");
         }
     }
 
+    /**
+     * Output file of the n-th invoice of a multi-invoice source
+     */
+    private File numberedOutputFile(File outputFile, int n) {
+        String name = outputFile.getName();
+        int dot = name.lastIndexOf('.');
+        String numbered = dot > 0
+                ? name.substring(0, dot) + "-" + n + name.substring(dot)
+                : name + "-" + n;
+        return new File(outputFile.getParentFile(), numbered);
+    }
+
     /**
      * Parse multiple invoices from a directory
      */
-    public void parseDirectory(File inputDir, File outputDir, String format) throws Exception {
-        if (!inputDir.isDirectory()) {
-            throw new IllegalArgumentException("Input path is not a directory: " + inputDir);
+    public BatchSummary parseDirectory(File inputDir, File outputDir, String format) throws Exception {
+        return parseDirectory(inputDir, outputDir, format, new BatchOptions());
+    }
+
+    /**
+     * Parse multiple invoices from a directory, feeding each parsed invoice
+     * to the given aggregator (may be null) so reports need no reload of the outputs
+     */
+    public BatchSummary parseDirectory(File inputDir, File outputDir, String format, InvoiceAggregator aggregator) throws Exception {
+        BatchOptions options = new BatchOptions();
+        options.setAggregator(aggregator);
+        return parseDirectory(inputDir, outputDir, format, options);
+    }
+
+    /**
+     * Parse multiple invoices from a directory in parallel, including the
+     * PDF/CSV entries of any ZIP or tar.gz archives in it
+     */
+    public BatchSummary parseDirectory(File inputDir, File outputDir, String format, BatchOptions options) throws Exception {
+        List<File> files = listInputs(inputDir);
+        if (files.isEmpty()) {
+            System.out.println("No PDF, CSV or archive files found in directory: " + inputDir);
+            return new BatchSummary();
         }
 
+        return parseBatch(files, outputDir, format, options);
+    }
+
+    /**
+     * Parse a batch of PDF, CSV and archive files in parallel, recording progress
+     * in a checkpoint journal inside the output directory so that an interrupted
+     * run can be resumed. Files over their time or memory budget are quarantined.
+     *
+     * Archive entries are streamed from the archive, never unpacked to disk
+     * (except entries over the spill threshold), and saved under
+     * {@code <output dir>/<archive name>/<entry path>}.
+     */
+    public BatchSummary parseBatch(List<File> inputs, File outputDir, String format, BatchOptions options) throws Exception {
+        System.out.println("Processing " + inputs.size() + " files ("
+                + options.getSchedulingPolicy().name().toLowerCase().replace('_', '-') + ")...\n");
+
+        BatchSummary summary = runBatch(inputs, outputDir, format, options, false);
+        printSummary(summary, options.isResume());
+        return summary;
+    }
+
+    /**
+     * Parse a directory together with other worker processes, possibly on
+     * other hosts, that share the coordinator's directory. The inputs are
+     * split into units of {@code unitSize} files; each worker claims units
+     * until none are left, and once every unit is done each worker reports
+     * the merged totals of the whole directory.
+     *
+     * Units held by a worker that stops renewing its lease are taken over by
+     * the others, and the files it already finished are not parsed again if
+     * it comes back with the same worker id. Every worker must see the same
+     * input and output directories.
+     */
+    public BatchSummary parseShard(File inputDir, File outputDir, String format, BatchOptions options,
+                                   ShardCoordinator coordinator, int unitSize) throws Exception {
+        List<String> names = new ArrayList<>();
+        for (File file : listInputs(inputDir)) {
+            names.add(file.getName());
+        }
+        Collections.sort(names);
+        coordinator.plan(names, unitSize);
+
+        // Resume from this worker's own journal, which lives with the plan
+        BatchOptions unitOptions = new BatchOptions(options);
+        unitOptions.setResume(true);
+        unitOptions.setJournalFile(coordinator.getJournalFile());
+        // One history for all of this worker's units, saved once at the end:
+        // saved per unit, concurrent workers would keep overwriting each other's
+        if (options.getCostEstimator() == null) {
+            unitOptions.setCostEstimator(new CostEstimator(loadTimingHistory(outputDir)));
+        }
+
+        ShardCoordinator.WorkUnit unit;
+        while ((unit = coordinator.claim()) != null || !coordinator.isFinished()) {
+            if (unit == null) {
+                // Remaining units are leased by live workers; wait in case one dies
+                Thread.sleep(coordinator.getPollMillis());
+                continue;
+            }
+
+            System.out.println("Processing " + unit.getId() + " (" + unit.getInputs().size() + " files) as "
+                    + coordinator.getWorkerId() + "...\n");
+
+            List<File> files = new ArrayList<>();
+            for (String name : unit.getInputs()) {
+                files.add(new File(inputDir, name));
+            }
+
+            InvoiceAggregator unitAggregator = options.getAggregator() != null
+                    ? new InvoiceAggregator(options.getAggregator().getGroupBy(),
+                            options.getAggregator().getDateOrder())
+                    : null;
+            unitOptions.setAggregator(unitAggregator);
+
+            UnitResult result = new UnitResult();
+            result.summary = runBatch(files, outputDir, format, unitOptions, true);
+            result.groups = unitAggregator != null ? unitAggregator.getGroups() : Collections.emptyList();
+            outputFormatter.writeJsonObject(result, coordinator.getSummaryFile(unit).getAbsolutePath());
+
+            if (!coordinator.complete(unit)) {
+                System.err.println("⚠ Lease on " + unit.getId() + " expired before it was finished; another worker has taken it over");
+            }
+        }
+        if (options.getCostEstimator() == null) {
+            saveTimingHistory(outputDir, unitOptions.getCostEstimator().getHistory());
+        }
+
+        BatchSummary merged = new BatchSummary();
+        for (File summaryFile : coordinator.getSummaryFiles()) {
+            UnitResult result = outputFormatter.readJsonObject(summaryFile.getAbsolutePath(), UnitResult.class);
+            merged.merge(result.summary);
+            if (options.getAggregator() != null) {
+                for (GroupTotals totals : result.groups) {
+                    options.getAggregator().addTotals(totals);
+                }
+            }
+        }
+        outputFormatter.writeJsonObject(merged, coordinator.getMergedSummaryFile().getAbsolutePath());
+
+        System.out.println("\nAll units done; totals cover every worker.");
+        printSummary(merged, false);
+        return merged;
+    }
+
+    /**
+     * Run a batch and count the outcomes, without printing a summary
+     *
+     * @param resumedAreSuccesses count files the journal shows as done as
+     *        successes rather than skipped, when the batch finishes work
+     *        that no earlier summary reported
+     */
+    private BatchSummary runBatch(List<File> inputs, File outputDir, String format, BatchOptions options,
+                                  boolean resumedAreSuccesses) throws Exception {
         if (!outputDir.exists()) {
             outputDir.mkdirs();
         }
 
+        File journalFile = options.getJournalFile() != null
+                ? options.getJournalFile()
+                : new File(outputDir, options.getJournalFileName());
+        Map<String, CheckpointJournal.Entry> previous = options.isResume()
+                ? CheckpointJournal.load(journalFile)
+                : Collections.emptyMap();
+        RetryPolicy retryPolicy = options.getRetryPolicy();
+
+        AtomicInteger skippedCount = new AtomicInteger();
+        AtomicInteger archiveFailCount = new AtomicInteger();
+        // Reloaded for the report once the lanes are done, so the aggregator
+        // is never fed from the dispatcher while workers add to it
+        Queue<String> finishedEarlier = new ConcurrentLinkedQueue<>();
+
+        // Skip inputs finished (or given up on) by a previous run
+        Predicate<String> include = name -> {
+            CheckpointJournal.Entry entry = previous.get(name);
+            if (entry == null || (entry.getStatus() != CheckpointJournal.Status.DONE
+                    && retryPolicy.canRetry(entry.isRetryable(), entry.getAttempts()))) {
+                return true;
+            }
+            if (entry.getStatus() == CheckpointJournal.Status.DONE) {
+                finishedEarlier.add(name);
+            }
+            skippedCount.incrementAndGet();
+            return false;
+        };
+
+        CostEstimator costEstimator = options.getCostEstimator() != null
+                ? options.getCostEstimator()
+                : new CostEstimator(loadTimingHistory(outputDir));
+        List<BatchScheduler.Lane> lanes = BatchScheduler.plan(inputs, options.getSchedulingPolicy(),
+                options.getParallelism(), costEstimator);
+
+        BatchSummary summary = new BatchSummary();
+        summary.setStartedAt(System.currentTimeMillis());
+
+        List<BatchRunner> runners = new ArrayList<>();
+        try (CheckpointJournal journal = new CheckpointJournal(journalFile, !options.isResume())) {
+            // Output renames reach the disk before the DONE entries that vouch for them
+            journal.setBeforeSync(outputFormatter::syncDirectories);
+            BatchInputs.ErrorHandler onArchiveError = (name, error) -> {
+                System.err.println("✗ Failed to read archive: " + name);
+                System.err.println("  Error: " + error.getMessage());
+                archiveFailCount.incrementAndGet();
+                try {
+                    journal.failed(name, false, error.getClass().getSimpleName() + ": " + error.getMessage());
+                } catch (IOException e) {
+                    System.err.println("✗ Could not record progress for: " + name);
+                }
+            };
+            BatchRunner.Job job = (source, cancelled) -> parseAndSave(source,
+                    outputFileFor(source.getName(), outputDir), format, options.isSplitInvoices(), cancelled);
+
+            // Every lane but the last runs on its own thread
+            List<Thread> laneThreads = new ArrayList<>();
+            AtomicReference<Throwable> laneError = new AtomicReference<>();
+            try {
+                for (int i = 0; i < lanes.size(); i++) {
+                    BatchOptions laneOptions = new BatchOptions(options);
+                    laneOptions.setParallelism(lanes.get(i).getParallelism());
+                    laneOptions.setCostEstimator(costEstimator);
+
+                    BatchRunner runner = new BatchRunner(laneOptions, journal);
+                    BatchInputs sources = new BatchInputs(lanes.get(i).getFiles(), include,
+                            options.getMaxInMemoryEntrySize(), options.getArchiveEntryLimit(), onArchiveError);
+                    runners.add(runner);
+
+                    if (i == lanes.size() - 1) {
+                        try {
+                            runner.run(sources, previous, job);
+                        } catch (RuntimeException | Error e) {
+                            laneError.compareAndSet(null, e);
+                        }
+                    } else {
+                        Thread thread = new Thread(() -> {
+                            try {
+                                runner.run(sources, previous, job);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            } catch (RuntimeException | Error e) {
+                                laneError.compareAndSet(null, e);
+                            }
+                        }, "batch-lane-" + (i + 1));
+                        thread.start();
+                        laneThreads.add(thread);
+                    }
+                }
+                for (Thread thread : laneThreads) {
+                    thread.join();
+                }
+            } catch (InterruptedException e) {
+                laneThreads.forEach(Thread::interrupt);
+                throw e;
+            }
+            // A broken lane fails the batch once the others are done, rather than leaving it undercounted
+            Throwable error = laneError.get();
+            if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            }
+            if (error instanceof Error) {
+                throw (Error) error;
+            }
+        }
+
+        for (String name : finishedEarlier) {
+            reloadForReport(outputFileFor(name, outputDir), format, options.getAggregator());
+        }
+
+        summary.setFinishedAt(System.currentTimeMillis());
+        if (resumedAreSuccesses) {
+            summary.setSuccessCount(finishedEarlier.size());
+            summary.setSkippedCount(skippedCount.get() - finishedEarlier.size());
+        } else {
+            summary.setSkippedCount(skippedCount.get());
+        }
+        summary.setFailCount(archiveFailCount.get());
+        for (BatchRunner runner : runners) {
+            BatchSummary lane = new BatchSummary();
+            lane.setSuccessCount(runner.getSuccessCount());
+            lane.setFailCount(runner.getFailCount());
+            lane.setQuarantined(runner.getQuarantined());
+            lane.setFileLatencies(runner.getFileLatencies());
+            summary.merge(lane);
+        }
+
+        if (options.getCostEstimator() == null) {
+            saveTimingHistory(outputDir, costEstimator.getHistory());
+        }
+        return summary;
+    }
+
+    /**
+     * Parse times of earlier batches into the same output directory
+     */
+    private TimingHistory loadTimingHistory(File outputDir) {
+        File historyFile = new File(outputDir, TimingHistory.DEFAULT_FILE_NAME);
+        if (historyFile.exists()) {
+            try {
+                return outputFormatter.readJsonObject(historyFile.getAbsolutePath(), TimingHistory.class);
+            } catch (IOException e) {
+                System.err.println("⚠ Ignoring unreadable timing history: " + historyFile.getName());
+            }
+        }
+        return new TimingHistory();
+    }
+
+    private void saveTimingHistory(File outputDir, TimingHistory history) {
+        File historyFile = new File(outputDir, TimingHistory.DEFAULT_FILE_NAME);
+        try {
+            synchronized (history) {
+                outputFormatter.writeJsonObject(history, historyFile.getAbsolutePath());
+            }
+        } catch (IOException e) {
+            System.err.println("⚠ Could not save timing history: " + e.getMessage());
+        }
+    }
+
+    private void printSummary(BatchSummary summary, boolean resumed) {
+        System.out.println("\n=== Summary ===");
+        System.out.println("Successful: " + summary.getSuccessCount());
+        System.out.println("Failed: " + summary.getFailCount());
+        System.out.println("Quarantined: " + summary.getQuarantined().size());
+        for (String name : summary.getQuarantined()) {
+            System.out.println("  - " + name);
+        }
+        if (resumed || summary.getSkippedCount() > 0) {
+            System.out.println("Skipped (already processed): " + summary.getSkippedCount());
+        }
+        if (summary.getFileLatencies().length > 0) {
+            System.out.println("File latency p50 / p99: " + summary.getLatencyPercentile(0.50) + " ms / "
+                    + summary.getLatencyPercentile(0.99) + " ms");
+        }
+        System.out.println("Makespan: " + summary.getMakespanMillis() + " ms");
+
+        FontCache fontCache = pdfExtractor.getFontCache();
+        if (fontCache != null && fontCache.getHits() + fontCache.getMisses() > 0) {
+            System.out.println("Fonts reused / parsed: " + fontCache.getHits() + " / " + fontCache.getMisses());
+        }
+    }
+
+    /**
+     * PDF, CSV and archive files directly inside a directory
+     */
+    private List<File> listInputs(File inputDir) {
+        if (!inputDir.isDirectory()) {
+            throw new IllegalArgumentException("Input path is not a directory: " + inputDir);
+        }
+
         File[] files = inputDir.listFiles((dir, name) -> 
             name.toLowerCase().endsWith(".pdf") || name.toLowerCase().endsWith(".csv")
+                    || ArchiveReader.isArchive(name)
         );
+        return files != null ? Arrays.asList(files) : Collections.emptyList();
+    }
+
+    /**
+     * Output path for a source name; archive entries keep their path inside the archive
+     */
+    private File outputFileFor(String sourceName, File outputDir) {
+        String baseName = sourceName.replaceAll("\\.\\w+$", "");
+        File outputFile = new File(outputDir, baseName + ".json");
+        outputFile.getParentFile().mkdirs();
+        return outputFile;
+    }
 
-        if (files == null || files.length == 0) {
-            System.out.println("No PDF or CSV files found in directory: " + inputDir);
+    /**
+     * Feed the saved JSON of an input finished by a previous run back into
+     * the report, so a resumed run still reports on the whole batch
+     */
+    private void reloadForReport(File outputFile, String format, InvoiceAggregator aggregator) {
+        if (aggregator == null) {
             return;
         }
 
-        System.out.println("Processing " + files.length + " files...\n");
+        // A multi-invoice input was saved as numbered files
+        List<File> saved = new ArrayList<>();
+        if (outputFile.exists()) {
+            saved.add(outputFile);
+        } else {
+            for (int n = 1; numberedOutputFile(outputFile, n).exists(); n++) {
+                saved.add(numberedOutputFile(outputFile, n));
+            }
+        }
 
-        int successCount = 0;
-        int failCount = 0;
+        if (format.equalsIgnoreCase("csv") || saved.isEmpty()) {
+            System.err.println("⚠ Cannot include previously processed file in report: " + outputFile.getName());
+            return;
+        }
 
-        for (File file : files) {
-            try {
-                String baseName = file.getName().replaceAll("\\.\\w+$", "");
-                File outputFile = new File(outputDir, baseName + ".json");
-                
-                parseAndSave(file, outputFile, format);
-                
-                System.out.println("✓ Successfully processed: " + file.getName());
-                successCount++;
-            } catch (Exception e) {
-                System.err.println("✗ Failed to process: " + file.getName());
-                System.err.println("  Error: " + e.getMessage());
-                failCount++;
+        try {
+            List<InvoiceData> invoices = new ArrayList<>();
+            for (File file : saved) {
+                invoices.add(outputFormatter.readJson(file.getAbsolutePath()));
+            }
+            synchronized (aggregator) {
+                invoices.forEach(aggregator::accept);
             }
+        } catch (IOException e) {
+            System.err.println("⚠ Cannot include previously processed file in report: " + outputFile.getName());
         }
+    }
 
-        System.out.println("\n=== Summary ===");
-        System.out.println("Successful: " + successCount);
-        System.out.println("Failed: " + failCount);
+    /**
+     * Results of one shard unit, stored in the shard directory for merging
+     */
+    private static class UnitResult {
+        private BatchSummary summary;
+        private List<GroupTotals> groups;
     }
 
     /**
@@ -122,4 +676,14 @@ public class InvoiceParser {
     public OutputFormatter getOutputFormatter() {
         return outputFormatter;
     }
+
+    /**
+     * Release the OCR worker pool, if any
+     */
+    @Override
+    public void close() {
+        if (ocrExtractor != null) {
+            ocrExtractor.close();
+        }
+    }
 }
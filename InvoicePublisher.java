@@ -0,0 +1,231 @@
+package com.invoiceparser;
+
+import com.invoiceparser.io.InvoiceSource;
+import com.invoiceparser.models.InvoiceData;
+import com.invoiceparser.models.Result;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Demand-driven publisher of parse results.
+ *
+ * Each subscriber gets its own pass over the sources: a source is only pulled
+ * and parsed once the subscriber has requested a result for it, and at most
+ * {@code parallelism} sources are parsed at the same time. Results are
+ * delivered in completion order; a failed parse is delivered as a failed
+ * {@link Result} rather than terminating the stream.
+ *
+ * Stream-backed sources can be read only once, so a publisher over them
+ * supports a single subscriber.
+ */
+public class InvoicePublisher implements Flow.Publisher<Result<InvoiceData>> {
+    private final InvoiceParser parser;
+    private final Iterable<InvoiceSource> sources;
+    private final Executor executor;
+    private final int parallelism;
+
+    public InvoicePublisher(InvoiceParser parser, Iterable<InvoiceSource> sources, Executor executor, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+        }
+        this.parser = parser;
+        this.sources = sources;
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Result<InvoiceData>> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+
+        Iterator<InvoiceSource> iterator;
+        try {
+            iterator = sources.iterator();
+        } catch (RuntimeException e) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(e);
+            return;
+        }
+
+        InvoiceSubscription subscription = new InvoiceSubscription(subscriber, iterator);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * Parse one source; failures confined to that input (including a stack
+     * overflow on deep nesting or running out of memory) become a failed result
+     */
+    private Result<InvoiceData> parse(InvoiceSource source) {
+        try (InvoiceSource closing = source) {
+            return Result.success(source.getName(), parser.parse(closing));
+        } catch (Exception | StackOverflowError | OutOfMemoryError e) {
+            return Result.failure(source.getName(), e);
+        }
+    }
+
+    /**
+     * Per-subscriber state. All signals to the subscriber and all access to
+     * the source iterator happen inside {@link #drain}, which runs on one
+     * thread at a time.
+     */
+    private class InvoiceSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super Result<InvoiceData>> subscriber;
+        private final Iterator<InvoiceSource> iterator;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final Queue<Result<InvoiceData>> ready = new ConcurrentLinkedQueue<>();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+        private volatile Throwable fatalError;
+
+        // Guarded by drain: sources started but not yet delivered, and end of input
+        private int inFlight;
+        private boolean exhausted;
+
+        InvoiceSubscription(Flow.Subscriber<? super Result<InvoiceData>> subscriber, Iterator<InvoiceSource> iterator) {
+            this.subscriber = subscriber;
+            this.iterator = iterator;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Requested a non-positive number of results: " + n);
+            } else {
+                requested.getAndUpdate(current -> {
+                    long sum = current + n;
+                    return sum < 0 ? Long.MAX_VALUE : sum;
+                });
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+
+            int missed = 1;
+            do {
+                if (cancelled) {
+                    return;
+                }
+                if (invalidRequest != null) {
+                    terminate(invalidRequest);
+                    return;
+                }
+                if (fatalError != null) {
+                    terminate(fatalError);
+                    return;
+                }
+
+                // Deliver finished results, up to the outstanding demand
+                long demand = requested.get();
+                long emitted = 0;
+                while (emitted < demand) {
+                    Result<InvoiceData> result = ready.poll();
+                    if (result == null) {
+                        break;
+                    }
+                    inFlight--;
+                    emitted++;
+                    subscriber.onNext(result);
+                    if (cancelled) {
+                        return;
+                    }
+                }
+                if (emitted > 0 && demand != Long.MAX_VALUE) {
+                    demand = requested.addAndGet(-emitted);
+                }
+
+                // Start parsing more sources, never more than were requested
+                while (!exhausted && inFlight < parallelism && inFlight < demand) {
+                    InvoiceSource source;
+                    try {
+                        if (!iterator.hasNext()) {
+                            exhausted = true;
+                            break;
+                        }
+                        source = iterator.next();
+                    } catch (RuntimeException e) {
+                        terminate(e);
+                        return;
+                    }
+
+                    inFlight++;
+                    try {
+                        executor.execute(() -> {
+                            try {
+                                ready.offer(parse(source));
+                            } catch (Throwable e) {
+                                // Anything parse() does not turn into a result ends the stream
+                                fatalError = e;
+                            } finally {
+                                drain();
+                            }
+                        });
+                    } catch (RuntimeException e) {
+                        // Rejected (e.g. the executor was shut down): the source will never be parsed
+                        inFlight--;
+                        closeQuietly(source);
+                        terminate(e);
+                        return;
+                    }
+                }
+
+                // With nothing left in flight, find out whether the input has ended even
+                // without demand, so a subscriber that requested exactly N results is completed
+                if (!exhausted && inFlight == 0) {
+                    try {
+                        exhausted = !iterator.hasNext();
+                    } catch (RuntimeException e) {
+                        terminate(e);
+                        return;
+                    }
+                }
+
+                if (exhausted && inFlight == 0) {
+                    cancelled = true;
+                    subscriber.onComplete();
+                    return;
+                }
+
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void terminate(Throwable error) {
+            cancelled = true;
+            subscriber.onError(error);
+        }
+
+        private void closeQuietly(InvoiceSource source) {
+            try {
+                source.close();
+            } catch (IOException e) {
+                // The stream is ending with the rejection anyway
+            }
+        }
+    }
+}
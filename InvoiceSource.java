@@ -0,0 +1,191 @@
+package com.invoiceparser.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One invoice input: a file on disk, an in-memory buffer or a stream.
+ * The name decides the format (by extension) and labels the result.
+ */
+public class InvoiceSource implements Closeable {
+
+    /**
+     * Opens the content of a source
+     */
+    public interface StreamOpener {
+        InputStream open() throws IOException;
+    }
+
+    private final String name;
+    private final File file;
+    private final long size;
+    private final StreamOpener opener;
+    private final Closeable cleanup;
+    private final boolean oversized;
+
+    private InvoiceSource(String name, File file, long size, StreamOpener opener, Closeable cleanup) {
+        this(name, file, size, opener, cleanup, false);
+    }
+
+    private InvoiceSource(String name, File file, long size, StreamOpener opener, Closeable cleanup, boolean oversized) {
+        this.name = name;
+        this.file = file;
+        this.size = size;
+        this.opener = opener;
+        this.cleanup = cleanup;
+        this.oversized = oversized;
+    }
+
+    public static InvoiceSource of(File file) {
+        return new InvoiceSource(file.getName(), file, file.length(), () -> new FileInputStream(file), null);
+    }
+
+    public static InvoiceSource of(Path path) {
+        return of(path.toFile());
+    }
+
+    public static InvoiceSource of(String name, byte[] content) {
+        return new InvoiceSource(name, null, content.length, () -> new ByteArrayInputStream(content), null);
+    }
+
+    /**
+     * Wrap a buffer without copying it; the buffer's position and limit are left untouched
+     */
+    public static InvoiceSource of(String name, ByteBuffer content) {
+        ByteBuffer view = content.asReadOnlyBuffer();
+        return new InvoiceSource(name, null, view.remaining(), () -> new ByteBufferInputStream(view.duplicate()), null);
+    }
+
+    /**
+     * A temporary file holding the content of an input named {@code name};
+     * the file is deleted when the source is closed
+     */
+    public static InvoiceSource ofTemporaryFile(String name, File file) {
+        return new InvoiceSource(name, file, file.length(), () -> new FileInputStream(file), () -> {
+            if (file.exists() && !file.delete()) {
+                file.deleteOnExit();
+            }
+        });
+    }
+
+    /**
+     * Wrap a stream of unknown length. The stream can be read only once
+     * and is closed together with this source.
+     */
+    public static InvoiceSource of(String name, InputStream content) {
+        AtomicBoolean opened = new AtomicBoolean();
+        return new InvoiceSource(name, null, -1, () -> {
+            if (!opened.compareAndSet(false, true)) {
+                throw new IOException("Stream source can only be read once: " + name);
+            }
+            return content;
+        }, content);
+    }
+
+    /**
+     * An input whose content was discarded after {@code bytesRead} bytes because
+     * it outgrew a size limit; it has no content and cannot be opened
+     */
+    public static InvoiceSource ofOversized(String name, long bytesRead) {
+        return new InvoiceSource(name, null, bytesRead, () -> {
+            throw new IOException("Content of oversized input was discarded: " + name);
+        }, null, true);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Backing file, or null if the source is not a file on disk
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Content length in bytes, or -1 if unknown
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Whether the content was discarded for outgrowing a size limit; the size
+     * is then only a lower bound
+     */
+    public boolean isOversized() {
+        return oversized;
+    }
+
+    /**
+     * Open the content; failures while reading it are marked transient
+     */
+    public InputStream openStream() throws IOException {
+        return TransientIOException.guard(name, opener.open());
+    }
+
+    public boolean isPdf() {
+        return name.toLowerCase().endsWith(".pdf");
+    }
+
+    public boolean isCsv() {
+        return name.toLowerCase().endsWith(".csv");
+    }
+
+    /**
+     * Release anything held for this source (streams, temporary files)
+     */
+    @Override
+    public void close() throws IOException {
+        if (cleanup != null) {
+            cleanup.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "InvoiceSource{" +
+                "name='" + name + '\'' +
+                ", size=" + size +
+                '}';
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
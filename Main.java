@@ -1,13 +1,28 @@
 package com.invoiceparser;
 
+import com.invoiceparser.batch.BatchOptions;
+import com.invoiceparser.batch.RetryPolicy;
+import com.invoiceparser.batch.SchedulingPolicy;
+import com.invoiceparser.batch.ShardCoordinator;
+import com.invoiceparser.extractors.FontCache;
+import com.invoiceparser.extractors.OcrExtractor;
+import com.invoiceparser.io.ArchiveReader;
+import com.invoiceparser.io.InvoiceSource;
 import com.invoiceparser.models.InvoiceData;
+import com.invoiceparser.reports.InvoiceAggregator;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Command-line interface for the Invoice Parser
  */
 public class Main {
+    private static final long RETRY_BACKOFF_MILLIS = 500;
+    private static final long BYTES_PER_MB = 1024 * 1024;
+    private static final int DEFAULT_UNIT_SIZE = 100;
     
     public static void main(String[] args) {
         if (args.length == 0) {
@@ -29,6 +44,27 @@ public class Main {
         String outputPath = null;
         String format = "json"; // default format
         boolean verbose = false;
+        String reportGroupBy = null;
+        InvoiceAggregator.DateOrder dateOrder = InvoiceAggregator.DateOrder.MONTH_FIRST;
+        String reportPath = null;
+        int topN = 0;
+        boolean ocr = false;
+        String tessdataPath = System.getenv("TESSDATA_PREFIX");
+        String ocrLanguage = "eng";
+        int ocrThreads = 2;
+        boolean resume = false;
+        boolean splitInvoices = false;
+        int maxAttempts = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long timeoutSeconds = BatchOptions.DEFAULT_TIMEOUT_MILLIS / 1000;
+        long maxFileSizeMb = 0;
+        long maxMemoryMb = 0;
+        String shardDir = null;
+        String workerId = null;
+        int unitSize = DEFAULT_UNIT_SIZE;
+        long leaseSeconds = ShardCoordinator.DEFAULT_LEASE_MILLIS / 1000;
+        SchedulingPolicy schedulingPolicy = SchedulingPolicy.LONGEST_FIRST;
+        long fontCacheMb = FontCache.DEFAULT_MAX_BYTES / BYTES_PER_MB;
 
         // Parse command-line arguments
         for (int i = 0; i < args.length; i++) {
@@ -65,6 +101,164 @@ public class Main {
                     verbose = true;
                     break;
                     
+                case "-r":
+                case "--report":
+                    if (i + 1 < args.length) {
+                        reportGroupBy = args[++i];
+                    } else {
+                        throw new IllegalArgumentException("Missing value for --report");
+                    }
+                    break;
+
+                case "--top":
+                    if (i + 1 < args.length) {
+                        topN = parsePositiveInt("--top", args[++i]);
+                    } else {
+                        throw new IllegalArgumentException("Missing value for --top");
+                    }
+                    break;
+
+                case "--date-order":
+                    if (i + 1 < args.length) {
+                        dateOrder = InvoiceAggregator.DateOrder.fromString(args[++i]);
+                    } else {
+                        throw new IllegalArgumentException("Missing value for --date-order");
+                    }
+                    break;
+
+                case "--report-output":
+                    if (i + 1 < args.length) {
+                        reportPath = args[++i];
+                    } else {
+                        throw new IllegalArgumentException("Missing value for --report-output");
+                    }
+                    break;
+                    
+                case "--ocr":
+                    ocr = true;
+                    break;
+
+                case "--tessdata":
+                    if (i + 1 < args.length) {
+                        tessdataPath = args[++i];
+                    } else {
+                        throw new IllegalArgumentException("Missing value for --tessdata");
+                    }
+                    break;
+
+                case "--ocr-lang":
+                    if (i + 1 < args.length) {
+                        ocrLanguage = args[++i];
+                    } else {
+                        throw new IllegalArgumentException("Missing value for --ocr-lang");
+                    }
+                    break;
+
+                case "--ocr-threads":
+                    if (i + 1 < args.length) {
+                        ocrThreads = parsePositiveInt("--ocr-threads", args[++i]);
+                    } else {
+                        throw new IllegalArgumentException("Missing value for --ocr-threads");
+                    }
+                    break;
+                    
+                case "--resume":
+                    resume = true;
+                    break;
+
+                case "--split-invoices":
+                    splitInvoices = true;
+                    break;
+
+                case "--max-attempts":
+                    if (i + 1 < args.length) {
+                        maxAttempts = parsePositiveInt("--max-attempts", args[++i]);
+                    } else {
+                        throw new IllegalArgumentException("Missing value for --max-attempts");
+                    }
+                    break;
+                    
+                case "-t":
+                case "--threads":
+                    if (i + 1 < args.length) {
+                        threads = parsePositiveInt("--threads", args[++i]);
+                    } else {
+                        throw new IllegalArgumentException("Missing value for --threads");
+                    }
+                    break;
+
+                case "--timeout":
+                    if (i + 1 < args.length) {
+                        timeoutSeconds = parseNonNegativeInt("--timeout", args[++i]);
+                    } else {
+                        throw new IllegalArgumentException("Missing value for --timeout");
+                    }
+                    break;
+
+                case "--schedule":
+                    if (i + 1 < args.length) {
+                        schedulingPolicy = SchedulingPolicy.fromString(args[++i]);
+                    } else {
+                        throw new IllegalArgumentException("Missing value for --schedule");
+                    }
+                    break;
+
+                case "--max-file-size":
+                    if (i + 1 < args.length) {
+                        maxFileSizeMb = parseNonNegativeInt("--max-file-size", args[++i]);
+                    } else {
+                        throw new IllegalArgumentException("Missing value for --max-file-size");
+                    }
+                    break;
+
+                case "--max-memory":
+                    if (i + 1 < args.length) {
+                        maxMemoryMb = parseNonNegativeInt("--max-memory", args[++i]);
+                    } else {
+                        throw new IllegalArgumentException("Missing value for --max-memory");
+                    }
+                    break;
+
+                case "--font-cache":
+                    if (i + 1 < args.length) {
+                        fontCacheMb = parseNonNegativeInt("--font-cache", args[++i]);
+                    } else {
+                        throw new IllegalArgumentException("Missing value for --font-cache");
+                    }
+                    break;
+
+                case "--shard-dir":
+                    if (i + 1 < args.length) {
+                        shardDir = args[++i];
+                    } else {
+                        throw new IllegalArgumentException("Missing value for --shard-dir");
+                    }
+                    break;
+
+                case "--worker-id":
+                    if (i + 1 < args.length) {
+                        workerId = args[++i];
+                    } else {
+                        throw new IllegalArgumentException("Missing value for --worker-id");
+                    }
+                    break;
+
+                case "--unit-size":
+                    if (i + 1 < args.length) {
+                        unitSize = parsePositiveInt("--unit-size", args[++i]);
+                    } else {
+                        throw new IllegalArgumentException("Missing value for --unit-size");
+                    }
+                    break;
+
+                case "--lease":
+                    if (i + 1 < args.length) {
+                        leaseSeconds = parsePositiveInt("--lease", args[++i]);
+                    } else {
+                        throw new IllegalArgumentException("Missing value for --lease");
+                    }
+                    break;
+                    
                 case "-h":
                 case "--help":
                     printUsage();
@@ -89,44 +283,125 @@ public class Main {
         File inputFile = new File(inputPath);
         File outputFile = new File(outputPath);
 
-        InvoiceParser parser = new InvoiceParser();
+        OcrExtractor ocrExtractor = ocr
+                ? new OcrExtractor(tessdataPath, ocrLanguage, ocrThreads, ocrThreads * 4)
+                : null;
 
-        // Process input
-        if (inputFile.isDirectory()) {
-            // Process directory
-            System.out.println("Processing directory: " + inputFile.getAbsolutePath());
-            parser.parseDirectory(inputFile, outputFile, format);
-        } else {
-            // Process single file
-            System.out.println("Processing file: " + inputFile.getAbsolutePath());
-            
-            InvoiceData invoice = parser.parse(inputFile);
+        FontCache fontCache = fontCacheMb > 0 ? new FontCache(fontCacheMb * BYTES_PER_MB) : null;
+
+        try (InvoiceParser parser = new InvoiceParser(ocrExtractor, maxMemoryMb * BYTES_PER_MB, fontCache)) {
+            InvoiceAggregator aggregator = reportGroupBy != null
+                    ? new InvoiceAggregator(InvoiceAggregator.GroupBy.fromString(reportGroupBy), dateOrder)
+                    : null;
+
+            BatchOptions options = new BatchOptions();
+            options.setAggregator(aggregator);
+            options.setResume(resume);
+            options.setSplitInvoices(splitInvoices);
+            options.setRetryPolicy(new RetryPolicy(maxAttempts, RETRY_BACKOFF_MILLIS));
+            options.setParallelism(threads);
+            options.setTimeoutMillis(timeoutSeconds * 1000);
+            options.setMaxFileSize(maxFileSizeMb * BYTES_PER_MB);
+            options.setSchedulingPolicy(schedulingPolicy);
+
+            // Process input
+            if (shardDir != null) {
+                // Share the directory with other workers
+                if (!inputFile.isDirectory()) {
+                    throw new IllegalArgumentException("--shard-dir requires a directory input");
+                }
+                String id = workerId != null ? workerId : ShardCoordinator.defaultWorkerId();
+                try (ShardCoordinator coordinator = new ShardCoordinator(new File(shardDir), id, leaseSeconds * 1000)) {
+                    System.out.println("Processing directory: " + inputFile.getAbsolutePath() + " as worker " + id);
+                    parser.parseShard(inputFile, outputFile, format, options, coordinator, unitSize);
+                }
+            } else if (inputFile.isDirectory()) {
+                // Process directory
+                System.out.println("Processing directory: " + inputFile.getAbsolutePath());
+                parser.parseDirectory(inputFile, outputFile, format, options);
+            } else if (ArchiveReader.isArchive(inputFile.getName())) {
+                // Process archive entries straight from the archive
+                if (!inputFile.exists()) {
+                    throw new IOException("File not found: " + inputFile.getAbsolutePath());
+                }
+                System.out.println("Processing archive: " + inputFile.getAbsolutePath());
+                parser.parseBatch(Collections.singletonList(inputFile), outputFile, format, options);
+            } else {
+                // Process single file
+                System.out.println("Processing file: " + inputFile.getAbsolutePath());
             
-            if (verbose) {
-                System.out.println("\n=== Extracted Data ===");
-                System.out.println("Invoice Number: " + invoice.getInvoiceNumber());
-                System.out.println("Date: " + invoice.getInvoiceDate());
-                System.out.println("Vendor: " + invoice.getVendorName());
-                System.out.println("Subtotal: $" + invoice.getSubtotal());
-                System.out.println("Tax: $" + invoice.getTaxAmount());
-                System.out.println("Total: $" + invoice.getTotalAmount());
-                System.out.println("Line Items: " + invoice.getItems().size());
-                System.out.println("Valid: " + (invoice.isValid() ? "Yes" : "No"));
-                System.out.println();
-            }
+                // Parse and save to output
+                List<InvoiceData> invoices = splitInvoices
+                        ? parser.parseAllAndSave(InvoiceSource.of(inputFile), outputFile, format)
+                        : Collections.singletonList(parser.parseAndSave(inputFile, outputFile, format));
+                if (aggregator != null) {
+                    invoices.forEach(aggregator::accept);
+                }
             
-            // Save to output
-            parser.parseAndSave(inputFile, outputFile, format);
+                if (verbose) {
+                    for (InvoiceData invoice : invoices) {
+                        System.out.println("\n=== Extracted Data ===");
+                        System.out.println("Invoice Number: " + invoice.getInvoiceNumber());
+                        System.out.println("Date: " + invoice.getInvoiceDate());
+                        System.out.println("Vendor: " + invoice.getVendorName());
+                        System.out.println("Subtotal: $" + invoice.getSubtotal());
+                        System.out.println("Tax: $" + invoice.getTaxAmount());
+                        System.out.println("Total: $" + invoice.getTotalAmount());
+                        System.out.println("Line Items: " + invoice.getItems().size());
+                        System.out.println("Valid: " + (invoice.isValid() ? "Yes" : "No"));
+                        System.out.println();
+                    }
+                }
             
-            System.out.println("✓ Successfully saved to: " + outputFile.getAbsolutePath());
+                if (invoices.size() > 1) {
+                    System.out.println("✓ Successfully saved " + invoices.size() + " invoices next to: " + outputFile.getAbsolutePath());
+                } else {
+                    System.out.println("✓ Successfully saved to: " + outputFile.getAbsolutePath());
+                }
             
-            if (format.equals("both")) {
-                String basePath = outputFile.getAbsolutePath();
-                String jsonPath = basePath.replaceAll("\\.\\w+$", ".json");
-                String csvPath = basePath.replaceAll("\\.\\w+$", ".csv");
-                System.out.println("  - JSON: " + jsonPath);
-                System.out.println("  - CSV: " + csvPath);
+                if (format.equals("both")) {
+                    String basePath = outputFile.getAbsolutePath();
+                    String jsonPath = basePath.replaceAll("\\.\\w+$", ".json");
+                    String csvPath = basePath.replaceAll("\\.\\w+$", ".csv");
+                    System.out.println("  - JSON: " + jsonPath);
+                    System.out.println("  - CSV: " + csvPath);
+                }
+            }
+
+            // Print and optionally save the aggregation report
+            if (aggregator != null) {
+                System.out.println();
+                System.out.print(parser.getOutputFormatter().toReportString(aggregator, topN));
+
+                if (reportPath != null) {
+                    parser.getOutputFormatter().writeReport(aggregator, topN, reportPath);
+                    System.out.println("✓ Report saved to: " + new File(reportPath).getAbsolutePath());
+                }
+            }
+        }
+    }
+
+    private static int parseNonNegativeInt(String option, String value) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < 0) {
+                throw new IllegalArgumentException("Value for " + option + " must not be negative: " + value);
             }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + option + ": " + value);
+        }
+    }
+
+    private static int parsePositiveInt(String option, String value) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed <= 0) {
+                throw new IllegalArgumentException("Value for " + option + " must be positive: " + value);
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + option + ": " + value);
         }
     }
 
@@ -137,10 +412,31 @@ public class Main {
         System.out.println("  java -jar invoice-parser.jar [OPTIONS]");
         System.out.println();
         System.out.println("OPTIONS:");
-        System.out.println("  -i, --input <path>     Input file or directory (required)");
+        System.out.println("  -i, --input <path>     Input file, directory or .zip/.tar.gz archive (required)");
         System.out.println("  -o, --output <path>    Output file or directory (default: 'output')");
         System.out.println("  -f, --format <format>  Output format: json, csv, or both (default: json)");
         System.out.println("  -v, --verbose          Print extracted data to console");
+        System.out.println("  -r, --report <group>   Print a summary grouped by vendor or month");
+        System.out.println("  --top <n>              Limit the report to the n groups with the highest total");
+        System.out.println("  --date-order <order>   Read dates like 03/04/2024 as mdy or dmy in month reports (default: mdy)");
+        System.out.println("  --report-output <path> Also save the report (CSV if path ends with .csv, JSON otherwise)");
+        System.out.println("  --ocr                  OCR scanned PDFs that have no usable text layer (needs Tesseract)");
+        System.out.println("  --tessdata <path>      Tesseract tessdata directory (default: $TESSDATA_PREFIX)");
+        System.out.println("  --ocr-lang <lang>      Tesseract language, e.g. eng or eng+fra (default: eng)");
+        System.out.println("  --ocr-threads <n>      Number of OCR worker threads (default: 2)");
+        System.out.println("  --resume               Continue an interrupted directory run, skipping finished files");
+        System.out.println("  --split-invoices       Save each invoice of a multi-invoice statement separately");
+        System.out.println("  --max-attempts <n>     Attempts per file for transient I/O failures (default: 1)");
+        System.out.println("  -t, --threads <n>      Files parsed concurrently in directory mode (default: CPU count)");
+        System.out.println("  --timeout <seconds>    Time budget per file before it is quarantined, 0 for none (default: 300)");
+        System.out.println("  --schedule <policy>    File order: listed, longest-first or split (default: longest-first)");
+        System.out.println("  --max-file-size <mb>   Quarantine larger files without parsing them (default: no limit)");
+        System.out.println("  --max-memory <mb>      Memory budget for buffering one PDF's data (default: no limit)");
+        System.out.println("  --font-cache <mb>      Memory for parsed fonts shared across PDFs, 0 to disable (default: 64)");
+        System.out.println("  --shard-dir <path>     Share a directory run with other workers through this shared directory");
+        System.out.println("  --worker-id <id>       Name of this worker in a shared run; keep it to resume after a restart (default: host name and pid)");
+        System.out.println("  --unit-size <n>        Files per unit of work in a shared run (default: 100)");
+        System.out.println("  --lease <seconds>      Time after which a silent worker's unit is taken over (default: 60)");
         System.out.println("  -h, --help             Show this help message");
         System.out.println();
         System.out.println("EXAMPLES:");
@@ -153,6 +449,18 @@ public class Main {
         System.out.println("  # Parse all files in directory");
         System.out.println("  java -jar invoice-parser.jar -i invoices/ -o results/ -f json");
         System.out.println();
+        System.out.println("  # Parse a directory and report the top 10 vendors by total");
+        System.out.println("  java -jar invoice-parser.jar -i invoices/ -o results/ --report vendor --top 10");
+        System.out.println();
+        System.out.println("  # Resume an interrupted directory run, retrying transient failures");
+        System.out.println("  java -jar invoice-parser.jar -i invoices/ -o results/ --resume --max-attempts 3");
+        System.out.println();
+        System.out.println("  # Split a directory across several machines (run the same command on each)");
+        System.out.println("  java -jar invoice-parser.jar -i /mnt/invoices -o /mnt/results --shard-dir /mnt/shard --report vendor");
+        System.out.println();
+        System.out.println("  # Parse every invoice inside an archive without unpacking it");
+        System.out.println("  java -jar invoice-parser.jar -i invoices-2024-03.zip -o results/");
+        System.out.println();
         System.out.println("  # Parse with verbose output");
         System.out.println("  java -jar invoice-parser.jar -i invoice.pdf -o result.json -v");
         System.out.println();
@@ -0,0 +1,265 @@
+package com.invoiceparser.extractors;
+
+import net.sourceforge.tess4j.Tesseract;
+import net.sourceforge.tess4j.TesseractException;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * OCR fallback for image-only (scanned) PDFs using a local Tesseract install.
+ * Recognition runs on its own bounded pool so slow pages cannot starve the
+ * text extraction path, and results are cached by page content hash.
+ */
+public class OcrExtractor implements AutoCloseable {
+    public static final int DEFAULT_MIN_CHARS_PER_PAGE = 32;
+
+    private static final float RENDER_DPI = 300f;
+    private static final int CACHE_SIZE = 1024;
+    private static final int MAX_FORM_DEPTH = 16;
+
+    private final String dataPath;
+    private final String language;
+    private final int minCharsPerPage;
+    private final ExecutorService executor;
+    private final Semaphore capacity;
+    private final ThreadLocal<Tesseract> engines;
+    private final Map<String, String> cache;
+
+    /**
+     * @param dataPath   tessdata directory, or null for the Tesseract default
+     * @param language   Tesseract language code(s), e.g. "eng" or "eng+fra"
+     * @param threads    number of OCR worker threads
+     * @param queueSize  pages allowed to wait for a worker before callers block
+     */
+    public OcrExtractor(String dataPath, String language, int threads, int queueSize) {
+        this(dataPath, language, threads, queueSize, DEFAULT_MIN_CHARS_PER_PAGE);
+    }
+
+    public OcrExtractor(String dataPath, String language, int threads, int queueSize, int minCharsPerPage) {
+        this.dataPath = dataPath;
+        this.language = language;
+        this.minCharsPerPage = minCharsPerPage;
+        this.capacity = new Semaphore(threads + queueSize);
+        this.engines = ThreadLocal.withInitial(this::createEngine);
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<String, String>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        });
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "ocr-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Whether the stripped text is too sparse to be a text-based PDF
+     */
+    public boolean needsOcr(CharSequence text, int pageCount) {
+        if (pageCount <= 0) {
+            return false;
+        }
+
+        int chars = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                chars++;
+            }
+        }
+        return chars / pageCount < minCharsPerPage;
+    }
+
+    /**
+     * OCR every page of the document and return the concatenated text.
+     * Pages are rendered on the calling thread (PDDocument is not thread-safe)
+     * and recognized on the OCR pool.
+     */
+    public String extractText(PDDocument document) throws IOException {
+        return String.join("\n", extractPages(document));
+    }
+
+    /**
+     * OCR every page of the document and return the text of each page
+     */
+    public List<String> extractPages(PDDocument document) throws IOException {
+        PDFRenderer renderer = new PDFRenderer(document);
+        int pageCount = document.getNumberOfPages();
+
+        String[] pageTexts = new String[pageCount];
+        List<Future<String>> pending = new ArrayList<>();
+        List<Integer> pendingPages = new ArrayList<>();
+
+        for (int i = 0; i < pageCount; i++) {
+            String hash = pageHash(document.getPage(i));
+            String cached = cache.get(hash);
+            if (cached != null) {
+                pageTexts[i] = cached;
+                continue;
+            }
+
+            BufferedImage image = renderer.renderImageWithDPI(i, RENDER_DPI, ImageType.GRAY);
+            pending.add(submit(hash, image));
+            pendingPages.add(i);
+        }
+
+        for (int i = 0; i < pending.size(); i++) {
+            pageTexts[pendingPages.get(i)] = await(pending.get(i));
+        }
+
+        return Arrays.asList(pageTexts);
+    }
+
+    private Future<String> submit(String hash, BufferedImage image) throws IOException {
+        try {
+            capacity.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for an OCR worker", e);
+        }
+
+        try {
+            return executor.submit(() -> {
+                try {
+                    String text = engines.get().doOCR(image);
+                    cache.put(hash, text);
+                    return text;
+                } finally {
+                    capacity.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            capacity.release();
+            throw e;
+        }
+    }
+
+    private String await(Future<String> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for OCR", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TesseractException) {
+                throw new IOException("OCR failed: " + e.getCause().getMessage(), e.getCause());
+            }
+            throw new IOException("OCR failed", e.getCause());
+        }
+    }
+
+    /**
+     * Hash the page content stream and the raw (still encoded) image data,
+     * including images drawn through form XObjects, which is far cheaper
+     * than rendering and identifies repeated scans
+     */
+    static String pageHash(PDPage page) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+
+        byte[] buffer = new byte[8192];
+        try (InputStream in = page.getContents()) {
+            update(digest, in, buffer);
+        }
+
+        updateXObjects(digest, page.getResources(), buffer, Collections.newSetFromMap(new IdentityHashMap<>()), 0);
+        digest.update((byte) (page.getRotation() / 90));
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Hash the images of a resource dictionary, descending into form XObjects
+     * (scanners often wrap the page image in one) once each
+     */
+    private static void updateXObjects(MessageDigest digest, PDResources resources, byte[] buffer,
+                                       Set<COSBase> visited, int depth) throws IOException {
+        if (resources == null || depth > MAX_FORM_DEPTH) {
+            return;
+        }
+
+        for (COSName name : resources.getXObjectNames()) {
+            PDXObject xObject = resources.getXObject(name);
+            if (xObject == null || !visited.add(xObject.getCOSObject())) {
+                continue;
+            }
+            digest.update(name.getName().getBytes(StandardCharsets.UTF_8));
+
+            if (xObject instanceof PDImageXObject) {
+                try (InputStream in = xObject.getCOSObject().createRawInputStream()) {
+                    update(digest, in, buffer);
+                }
+            } else if (xObject instanceof PDFormXObject) {
+                PDFormXObject form = (PDFormXObject) xObject;
+                digest.update(Arrays.toString(form.getMatrix().toCOSArray().toFloatArray())
+                        .getBytes(StandardCharsets.UTF_8));
+                try (InputStream in = xObject.getCOSObject().createRawInputStream()) {
+                    update(digest, in, buffer);
+                }
+                updateXObjects(digest, form.getResources(), buffer, visited, depth + 1);
+            }
+        }
+    }
+
+    private static void update(MessageDigest digest, InputStream in, byte[] buffer) throws IOException {
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+    }
+
+    private Tesseract createEngine() {
+        Tesseract tesseract = new Tesseract();
+        if (dataPath != null) {
+            tesseract.setDatapath(dataPath);
+        }
+        tesseract.setLanguage(language);
+        return tesseract;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -4,15 +4,42 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.invoiceparser.models.InvoiceData;
 import com.invoiceparser.models.LineItem;
+import com.invoiceparser.reports.GroupTotals;
+import com.invoiceparser.reports.InvoiceAggregator;
 
-import java.io.FileWriter;
+import java.io.BufferedWriter;
+import java.io.FileReader;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
 
 /**
  * Formats and writes invoice data to different output formats
  */
 public class OutputFormatter {
+    private static final BooleanSupplier NOT_CANCELLED = () -> false;
+
     private final Gson gson;
+    // Directories with renames that are not on disk yet
+    private final Set<Path> unsyncedDirectories = ConcurrentHashMap.newKeySet();
 
     public OutputFormatter() {
         this.gson = new GsonBuilder()
@@ -24,8 +51,54 @@ public class OutputFormatter {
      * Write invoice data to JSON file
      */
     public void writeJson(InvoiceData invoice, String outputPath) throws IOException {
-        try (FileWriter writer = new FileWriter(outputPath)) {
-            gson.toJson(invoice, writer);
+        writeJson(invoice, outputPath, NOT_CANCELLED);
+        syncDirectories();
+    }
+
+    /**
+     * Write invoice data to JSON file unless {@code cancelled} is true by the
+     * time the file would replace the target. The rename is only on disk once
+     * {@link #syncDirectories} has run.
+     */
+    public void writeJson(InvoiceData invoice, String outputPath, BooleanSupplier cancelled) throws IOException {
+        writeAtomically(outputPath, writer -> gson.toJson(invoice, writer), cancelled);
+    }
+
+    /**
+     * Read invoice data back from a JSON file written by {@link #writeJson}
+     */
+    public InvoiceData readJson(String inputPath) throws IOException {
+        try (FileReader reader = new FileReader(inputPath)) {
+            InvoiceData invoice = gson.fromJson(reader, InvoiceData.class);
+            if (invoice == null) {
+                throw new IOException("Empty JSON file: " + inputPath);
+            }
+            return invoice;
+        } catch (com.google.gson.JsonParseException e) {
+            throw new IOException("Invalid JSON file: " + inputPath, e);
+        }
+    }
+
+    /**
+     * Write any object as JSON, replacing the file atomically
+     */
+    public void writeJsonObject(Object value, String outputPath) throws IOException {
+        writeAtomically(outputPath, writer -> gson.toJson(value, writer));
+        syncDirectories();
+    }
+
+    /**
+     * Read an object back from a JSON file written by {@link #writeJsonObject}
+     */
+    public <T> T readJsonObject(String inputPath, Class<T> type) throws IOException {
+        try (FileReader reader = new FileReader(inputPath)) {
+            T value = gson.fromJson(reader, type);
+            if (value == null) {
+                throw new IOException("Empty JSON file: " + inputPath);
+            }
+            return value;
+        } catch (com.google.gson.JsonParseException e) {
+            throw new IOException("Invalid JSON file: " + inputPath, e);
         }
     }
 
@@ -33,7 +106,17 @@ public class OutputFormatter {
      * Write invoice data to CSV file
      */
     public void writeCsv(InvoiceData invoice, String outputPath) throws IOException {
-        try (FileWriter writer = new FileWriter(outputPath)) {
+        writeCsv(invoice, outputPath, NOT_CANCELLED);
+        syncDirectories();
+    }
+
+    /**
+     * Write invoice data to CSV file unless {@code cancelled} is true by the
+     * time the file would replace the target. The rename is only on disk once
+     * {@link #syncDirectories} has run.
+     */
+    public void writeCsv(InvoiceData invoice, String outputPath, BooleanSupplier cancelled) throws IOException {
+        writeAtomically(outputPath, writer -> {
             // Write metadata
             writer.write("Invoice Metadata\n");
             writer.write("Invoice Number," + invoice.getInvoiceNumber() + "\n");
@@ -57,7 +140,7 @@ public class OutputFormatter {
                     item.getLineTotal()
                 ));
             }
-        }
+        }, cancelled);
     }
 
     /**
@@ -96,6 +179,172 @@ public class OutputFormatter {
         return sb.toString();
     }
 
+    /**
+     * Write an aggregation report to file (CSV if the path ends with .csv, JSON otherwise)
+     */
+    public void writeReport(InvoiceAggregator aggregator, int topN, String outputPath) throws IOException {
+        writeAtomically(outputPath, writer -> {
+            if (outputPath.toLowerCase().endsWith(".csv")) {
+                writer.write(toReportCsvString(aggregator, topN));
+            } else {
+                gson.toJson(toReportMap(aggregator, topN), writer);
+            }
+        });
+        syncDirectories();
+    }
+
+    /**
+     * Convert an aggregation report to a console-friendly table
+     */
+    public String toReportString(InvoiceAggregator aggregator, int topN) {
+        StringBuilder sb = new StringBuilder();
+        String groupName = aggregator.getGroupBy() == InvoiceAggregator.GroupBy.VENDOR ? "Vendor" : "Month";
+
+        sb.append("=== Report by ").append(groupName.toLowerCase());
+        if (topN > 0) {
+            sb.append(" (top ").append(topN).append(")");
+        }
+        sb.append(" ===\n");
+        sb.append(String.format("%-30s %8s %14s %12s %14s\n", groupName, "Invoices", "Subtotal", "Tax", "Total"));
+
+        for (GroupTotals totals : aggregator.top(topN)) {
+            sb.append(formatReportRow(totals));
+        }
+        sb.append(formatReportRow(aggregator.getGrandTotal()));
+
+        return sb.toString();
+    }
+
+    /**
+     * Convert an aggregation report to CSV string
+     */
+    public String toReportCsvString(InvoiceAggregator aggregator, int topN) {
+        StringBuilder sb = new StringBuilder();
+        String groupName = aggregator.getGroupBy() == InvoiceAggregator.GroupBy.VENDOR ? "Vendor" : "Month";
+
+        sb.append(groupName).append(",Invoices,Line Items,Subtotal,Tax,Total\n");
+        for (GroupTotals totals : aggregator.top(topN)) {
+            sb.append(formatReportCsvRow(totals));
+        }
+        sb.append(formatReportCsvRow(aggregator.getGrandTotal()));
+
+        return sb.toString();
+    }
+
+    private String formatReportCsvRow(GroupTotals totals) {
+        return escapeCsv(totals.getKey()) + "," +
+            totals.getInvoiceCount() + "," +
+            totals.getLineItemCount() + "," +
+            String.format("%.2f", totals.getSubtotal()) + "," +
+            String.format("%.2f", totals.getTaxAmount()) + "," +
+            String.format("%.2f", totals.getTotalAmount()) + "\n";
+    }
+
+    private Map<String, Object> toReportMap(InvoiceAggregator aggregator, int topN) {
+        List<GroupTotals> groups = aggregator.top(topN);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("groupBy", aggregator.getGroupBy().name().toLowerCase());
+        report.put("groupCount", groups.size());
+        report.put("groups", groups);
+        report.put("total", aggregator.getGrandTotal());
+        return report;
+    }
+
+    private String formatReportRow(GroupTotals totals) {
+        String key = totals.getKey();
+        if (key.length() > 30) {
+            key = key.substring(0, 27) + "...";
+        }
+        return String.format("%-30s %8d %14.2f %12.2f %14.2f\n",
+            key,
+            totals.getInvoiceCount(),
+            totals.getSubtotal(),
+            totals.getTaxAmount(),
+            totals.getTotalAmount()
+        );
+    }
+
+    /**
+     * Write to a temporary file next to the target, flush it to disk, then
+     * rename it into place, so neither a crash nor a power loss leaves a
+     * truncated output behind. The rename itself is made durable by
+     * {@link #syncDirectories}, once for all files written since the last
+     * call rather than once per file.
+     */
+    private void writeAtomically(String outputPath, WriteAction action) throws IOException {
+        writeAtomically(outputPath, action, NOT_CANCELLED);
+    }
+
+    private void writeAtomically(String outputPath, WriteAction action, BooleanSupplier cancelled) throws IOException {
+        Path target = Paths.get(outputPath).toAbsolutePath();
+        // Created like any new file (not with createTempFile's owner-only mode), so the umask applies
+        Path temp = target.resolveSibling("." + target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                 Writer writer = new BufferedWriter(Channels.newWriter(channel, Charset.defaultCharset().newEncoder(), -1))) {
+                action.write(writer);
+                writer.flush();
+                channel.force(true);
+            }
+            keepPermissions(target, temp);
+
+            // A file given up on by the batch (e.g. timed out) must not replace its output afterwards
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException("Output abandoned: " + target.getFileName());
+            }
+
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            unsyncedDirectories.add(target.getParent());
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Persist the renames of every file written since the last call; call it
+     * before recording those files as done (e.g. in a journal)
+     */
+    public synchronized void syncDirectories() {
+        Iterator<Path> directories = unsyncedDirectories.iterator();
+        while (directories.hasNext()) {
+            Path directory = directories.next();
+            directories.remove();
+            syncDirectory(directory);
+        }
+    }
+
+    /**
+     * Give a rewritten file the mode of the one it replaces, as rewriting in place would
+     */
+    private static void keepPermissions(Path target, Path temp) throws IOException {
+        try {
+            Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+        } catch (NoSuchFileException | UnsupportedOperationException e) {
+            // New file, or no POSIX permissions here: the default mode is right
+        }
+    }
+
+    /**
+     * Persist a rename; not every platform can open a directory for syncing
+     */
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Best effort, e.g. on Windows
+        }
+    }
+
+    private interface WriteAction {
+        void write(Writer writer) throws IOException;
+    }
+
     /**
      * Escape CSV special characters
      */
@@ -1,12 +1,31 @@
 package com.invoiceparser.extractors;
 
+import com.invoiceparser.io.TransientIOException;
 import com.invoiceparser.models.InvoiceData;
 import com.invoiceparser.models.LineItem;
+import org.apache.pdfbox.contentstream.PDContentStream;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessBufferedFileInputStream;
+import org.apache.pdfbox.io.ScratchFile;
+import org.apache.pdfbox.pdfparser.PDFParser;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.util.Matrix;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -15,12 +34,22 @@ import java.util.regex.Pattern;
  */
 public class PDFExtractor {
     
-    // Regex patterns for common invoice fields
+    // Regex patterns for common invoice fields; INV is also a prefix glued
+    // to the number (INV123), but never the start of "Invoice" itself
     private static final Pattern INVOICE_NUMBER_PATTERN = Pattern.compile(
-        "(?:Invoice|Facture|INV)\\s*[#:]?\\s*([A-Z0-9-]+)", 
+        "(?:Invoice|Facture|INV(?!oice))(?:\\s*(?:Number|Num[ée]ro))?(?:\\s*(?:#|:|No\\.))*\\s*([A-Z0-9-]+)", 
         Pattern.CASE_INSENSITIVE
     );
     
+    // Invoice number that starts a new invoice in a statement: an explicit
+    // marker (#, : or No.) and a value with a digit, so "Invoice Total: 28.25"
+    // or "Invoice Date: ..." never start one
+    private static final Pattern INVOICE_BOUNDARY_PATTERN = Pattern.compile(
+        "\\b(?:Invoice|Facture|INV)\\b(?:\\s*(?:Number|Num[ée]ro))?(?:\\s*(?:#|:|No\\.))+\\s*"
+            + "(?!(?:Total|Date|Number)\\b)([A-Z0-9-]*\\d[A-Z0-9-]*)",
+        Pattern.CASE_INSENSITIVE
+    );
+
     private static final Pattern DATE_PATTERN = Pattern.compile(
         "(\\d{4}-\\d{2}-\\d{2}|\\d{2}/\\d{2}/\\d{4}|\\d{2}-\\d{2}-\\d{4})"
     );
@@ -44,32 +73,357 @@ public class PDFExtractor {
         Pattern.CASE_INSENSITIVE
     );
 
+    // Line item rows: Description Qty Price Amount
+    private static final Pattern LINE_ITEM_PATTERN = Pattern.compile(
+        "([A-Za-z][A-Za-z\\s]+)\\s+(\\d+)\\s+\\$?([0-9,]+\\.\\d{2})\\s+\\$?([0-9,]+\\.\\d{2})"
+    );
+
+    // Message of the IOException PDFBox throws when a MemoryUsageSetting limit is hit
+    private static final String MEMORY_LIMIT_MESSAGE = "Maximum allowed scratch file memory exceeded";
+
+    // Work split of long documents. Every extra page range reloads the
+    // document, so ranges are only as many as there are processors.
+    private static final int MIN_PAGES_PER_TASK = 16;
+    private static final int SEGMENTS_PER_TASK = 16;
+
+    // Written after every page so one strip yields the text of each page
+    private static final String PAGE_BREAK = "\f";
+
+    // PDFTextStripper's own page end
+    private static final String DEFAULT_PAGE_END = System.lineSeparator();
+
+    private final OcrExtractor ocrExtractor;
+    private final long maxDocumentMemory;
+    private final Executor executor;
+    private final FontCache fontCache;
+
+    // Strippers are not thread-safe, so each thread reuses its own
+    private final ThreadLocal<PooledTextStripper> strippers = new ThreadLocal<>();
+
+    public PDFExtractor() {
+        this(null);
+    }
+
+    /**
+     * @param ocrExtractor OCR fallback for image-only pages, or null to disable OCR
+     */
+    public PDFExtractor(OcrExtractor ocrExtractor) {
+        this(ocrExtractor, 0);
+    }
+
+    /**
+     * @param ocrExtractor      OCR fallback for image-only pages, or null to disable OCR
+     * @param maxDocumentMemory bytes of stream data a single document may buffer (0 = unlimited)
+     */
+    public PDFExtractor(OcrExtractor ocrExtractor, long maxDocumentMemory) {
+        this(ocrExtractor, maxDocumentMemory, null);
+    }
+
+    /**
+     * @param ocrExtractor      OCR fallback for image-only pages, or null to disable OCR
+     * @param maxDocumentMemory bytes of stream data a single document may buffer (0 = unlimited)
+     * @param executor          runs page ranges and invoices of long documents in parallel,
+     *                          or null to extract on the calling thread only
+     */
+    public PDFExtractor(OcrExtractor ocrExtractor, long maxDocumentMemory, Executor executor) {
+        this(ocrExtractor, maxDocumentMemory, executor, null);
+    }
+
+    /**
+     * @param ocrExtractor      OCR fallback for image-only pages, or null to disable OCR
+     * @param maxDocumentMemory bytes of stream data a single document may buffer (0 = unlimited)
+     * @param executor          runs page ranges and invoices of long documents in parallel,
+     *                          or null to extract on the calling thread only
+     * @param fontCache         parsed fonts shared across documents, or null to parse every document's fonts
+     */
+    public PDFExtractor(OcrExtractor ocrExtractor, long maxDocumentMemory, Executor executor, FontCache fontCache) {
+        this.ocrExtractor = ocrExtractor;
+        this.maxDocumentMemory = maxDocumentMemory;
+        this.executor = executor;
+        this.fontCache = fontCache;
+    }
+
+    /**
+     * The font cache shared by the documents of this extractor, or null
+     */
+    public FontCache getFontCache() {
+        return fontCache;
+    }
+
     /**
      * Extract invoice data from a PDF file
      */
     public InvoiceData extract(File pdfFile) throws IOException {
+        try (FontCache.DocumentCache fonts = documentFonts(); PDDocument document = load(pdfFile, fonts)) {
+            return extract(document);
+        } catch (IOException e) {
+            throw checkMemoryLimit(e);
+        }
+    }
+
+    /**
+     * Extract invoice data from PDF content read from a stream (the stream is not closed)
+     */
+    public InvoiceData extract(InputStream pdfStream) throws IOException {
+        try (FontCache.DocumentCache fonts = documentFonts(); PDDocument document = load(pdfStream, fonts)) {
+            return extract(document);
+        } catch (IOException e) {
+            throw checkMemoryLimit(e);
+        }
+    }
+
+    /**
+     * Extract every invoice in a PDF file, e.g. a supplier statement holding
+     * hundreds of invoices. Pages are grouped into invoices by their first
+     * invoice number: a page with a different number than the one before
+     * starts a new invoice, and a page without one continues the current invoice.
+     *
+     * Long documents are stripped in page ranges and their invoices extracted
+     * in parallel on the executor; each page range task loads its own copy of
+     * the document (PDDocument is not thread-safe), and with it its own memory budget.
+     */
+    public List<InvoiceData> extractAll(File pdfFile) throws IOException {
+        try (FontCache.DocumentCache fonts = documentFonts(); PDDocument document = load(pdfFile, fonts)) {
+            return extractAll(document, copyFonts -> load(pdfFile, copyFonts));
+        } catch (IOException e) {
+            throw checkMemoryLimit(e);
+        }
+    }
+
+    /**
+     * Extract every invoice in PDF content read from a stream (the stream is not closed).
+     * The content is buffered in memory so page range tasks can load their own copies.
+     */
+    public List<InvoiceData> extractAll(InputStream pdfStream) throws IOException {
+        byte[] data = readFully(pdfStream);
+        try (FontCache.DocumentCache fonts = documentFonts(); PDDocument document = load(data, fonts)) {
+            return extractAll(document, copyFonts -> load(data, copyFonts));
+        } catch (IOException e) {
+            throw checkMemoryLimit(e);
+        }
+    }
+
+    private InvoiceData extract(PDDocument document) throws IOException {
+        CharSequence text = new InterruptibleCharSequence(strip(document, 1, Integer.MAX_VALUE, DEFAULT_PAGE_END));
+
+        // Scanned invoices have (almost) no text layer: fall back to OCR
+        if (ocrExtractor != null && ocrExtractor.needsOcr(text, document.getNumberOfPages())) {
+            text = new InterruptibleCharSequence(ocrExtractor.extractText(document));
+        }
+
+        return toInvoice(text);
+    }
+
+    private List<InvoiceData> extractAll(PDDocument document, DocumentLoader loader) throws IOException {
+        int pageCount = document.getNumberOfPages();
+        List<String> pages = stripPages(document, loader, pageCount);
+
+        // Scanned invoices have (almost) no text layer: fall back to OCR
+        if (ocrExtractor != null && ocrExtractor.needsOcr(String.join("", pages), pageCount)) {
+            pages = ocrExtractor.extractPages(document);
+        }
+
+        List<String> segments = splitInvoices(pages);
+        List<Callable<List<InvoiceData>>> tasks = new ArrayList<>();
+        for (int start = 0; start < segments.size(); start += SEGMENTS_PER_TASK) {
+            List<String> chunk = segments.subList(start, Math.min(start + SEGMENTS_PER_TASK, segments.size()));
+            tasks.add(() -> {
+                List<InvoiceData> invoices = new ArrayList<>(chunk.size());
+                for (String segment : chunk) {
+                    invoices.add(toInvoice(new InterruptibleCharSequence(segment)));
+                }
+                return invoices;
+            });
+        }
+
+        List<InvoiceData> invoices = new ArrayList<>(segments.size());
+        for (List<InvoiceData> chunk : ParallelTasks.invokeAll(executor, tasks)) {
+            invoices.addAll(chunk);
+        }
+        return invoices;
+    }
+
+    /**
+     * Text of every page. The loaded document strips the first page range
+     * on the calling thread; further ranges load their own copy.
+     */
+    private List<String> stripPages(PDDocument document, DocumentLoader loader, int pageCount) throws IOException {
+        int taskCount = Math.min(Runtime.getRuntime().availableProcessors(), pageCount / MIN_PAGES_PER_TASK);
+        if (executor == null || taskCount <= 1) {
+            return stripPages(document, 1, pageCount);
+        }
+
+        int pagesPerTask = (pageCount + taskCount - 1) / taskCount;
+        List<Callable<List<String>>> tasks = new ArrayList<>();
+        tasks.add(() -> stripPages(document, 1, pagesPerTask));
+        for (int first = pagesPerTask + 1; first <= pageCount; first += pagesPerTask) {
+            int from = first;
+            int to = Math.min(first + pagesPerTask - 1, pageCount);
+            tasks.add(() -> {
+                try (FontCache.DocumentCache fonts = documentFonts(); PDDocument copy = loader.load(fonts)) {
+                    return stripPages(copy, from, to);
+                }
+            });
+        }
+
+        List<String> pages = new ArrayList<>(pageCount);
+        for (List<String> range : ParallelTasks.invokeAll(executor, tasks)) {
+            pages.addAll(range);
+        }
+        return pages;
+    }
+
+    private List<String> stripPages(PDDocument document, int from, int to) throws IOException {
+        String[] pages = Arrays.copyOf(strip(document, from, to, PAGE_BREAK).split(PAGE_BREAK, -1), Math.max(0, to - from + 1));
+        for (int i = 0; i < pages.length; i++) {
+            if (pages[i] == null) {
+                pages[i] = "";
+            }
+        }
+        return Arrays.asList(pages);
+    }
+
+    /**
+     * Group consecutive pages into the text of each invoice (at least one).
+     * A page starts a new invoice only if its first invoice number is a new,
+     * different one; any other page continues the current invoice.
+     */
+    private List<String> splitInvoices(List<String> pages) {
+        List<String> segments = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        String currentNumber = null;
+
+        for (String page : pages) {
+            Matcher matcher = INVOICE_BOUNDARY_PATTERN.matcher(new InterruptibleCharSequence(page));
+            String number = matcher.find() ? matcher.group(1).trim() : null;
+
+            if (number != null && currentNumber != null && !number.equals(currentNumber)) {
+                segments.add(current.toString());
+                current.setLength(0);
+            }
+            if (number != null) {
+                currentNumber = number;
+            }
+            current.append(page).append('\n');
+        }
+
+        segments.add(current.toString());
+        return segments;
+    }
+
+    private InvoiceData toInvoice(CharSequence text) {
         InvoiceData invoice = new InvoiceData();
+
+        // Extract fields using regex patterns
+        invoice.setInvoiceNumber(extractInvoiceNumber(text));
+        invoice.setInvoiceDate(extractDate(text));
+        invoice.setTotalAmount(extractTotal(text));
+        invoice.setSubtotal(extractSubtotal(text));
+        invoice.setTaxAmount(extractTax(text));
+        invoice.setVendorName(extractVendorName(text));
         
-        try (PDDocument document = PDDocument.load(pdfFile)) {
-            PDFTextStripper stripper = new PDFTextStripper();
-            String text = stripper.getText(document);
-            
-            // Extract fields using regex patterns
-            invoice.setInvoiceNumber(extractInvoiceNumber(text));
-            invoice.setInvoiceDate(extractDate(text));
-            invoice.setTotalAmount(extractTotal(text));
-            invoice.setSubtotal(extractSubtotal(text));
-            invoice.setTaxAmount(extractTax(text));
-            invoice.setVendorName(extractVendorName(text));
-            
-            // Extract line items (simplified)
-            extractLineItems(text, invoice);
-        }
+        // Extract line items (simplified)
+        extractLineItems(text, invoice);
         
         return invoice;
     }
 
-    private String extractInvoiceNumber(String text) {
+    /**
+     * Load as PDDocument.load(File) does, but through a file whose read failures are marked transient
+     */
+    private PDDocument load(File pdfFile, FontCache.DocumentCache fonts) throws IOException {
+        MemoryUsageSetting memory = maxDocumentMemory <= 0
+                ? MemoryUsageSetting.setupMainMemoryOnly()
+                : MemoryUsageSetting.setupMainMemoryOnly(maxDocumentMemory);
+        GuardedFileInput in = new GuardedFileInput(pdfFile);
+        ScratchFile scratch = null;
+        try {
+            scratch = new ScratchFile(memory);
+            PDFParser parser = new PDFParser(in, "", null, null, scratch);
+            parser.parse();
+            // The document closes both
+            return withFonts(parser.getPDDocument(), fonts);
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeQuietly(scratch);
+            IOUtils.closeQuietly(in);
+            throw e;
+        }
+    }
+
+    private PDDocument load(InputStream pdfStream, FontCache.DocumentCache fonts) throws IOException {
+        if (maxDocumentMemory <= 0) {
+            return withFonts(PDDocument.load(pdfStream), fonts);
+        }
+        return withFonts(PDDocument.load(pdfStream, MemoryUsageSetting.setupMainMemoryOnly(maxDocumentMemory)), fonts);
+    }
+
+    private PDDocument load(byte[] data, FontCache.DocumentCache fonts) throws IOException {
+        if (maxDocumentMemory <= 0) {
+            return withFonts(PDDocument.load(data), fonts);
+        }
+        return withFonts(PDDocument.load(data, "", null, null, MemoryUsageSetting.setupMainMemoryOnly(maxDocumentMemory)), fonts);
+    }
+
+    private PDDocument withFonts(PDDocument document, FontCache.DocumentCache fonts) {
+        if (fonts != null) {
+            document.setResourceCache(fonts);
+        }
+        return document;
+    }
+
+    /**
+     * A resource cache borrowing from the shared font cache; close it after the document
+     */
+    private FontCache.DocumentCache documentFonts() {
+        return fontCache != null ? fontCache.forDocument() : null;
+    }
+
+    /**
+     * Strip the given pages with this thread's text stripper. A stripper that
+     * failed part way is dropped rather than pooled, as its state is unknown.
+     */
+    private String strip(PDDocument document, int from, int to, String pageEnd) throws IOException {
+        PooledTextStripper stripper = strippers.get();
+        strippers.remove();
+        if (stripper == null) {
+            stripper = new PooledTextStripper();
+        }
+        stripper.setStartPage(from);
+        stripper.setEndPage(to);
+        stripper.setPageEnd(pageEnd);
+        String text = stripper.strip(document);
+        strippers.set(stripper);
+        return text;
+    }
+
+    /**
+     * Buffer a whole stream, counting the buffer against the memory budget
+     */
+    private byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            if (maxDocumentMemory > 0 && out.size() > maxDocumentMemory) {
+                throw new ResourceLimitException("PDF exceeds the memory budget of " + maxDocumentMemory + " bytes", null);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Report PDFBox running out of its memory budget as a ResourceLimitException
+     */
+    private IOException checkMemoryLimit(IOException e) {
+        if (!(e instanceof ResourceLimitException)
+                && e.getMessage() != null && e.getMessage().startsWith(MEMORY_LIMIT_MESSAGE)) {
+            return new ResourceLimitException("PDF exceeds the memory budget of " + maxDocumentMemory + " bytes", e);
+        }
+        return e;
+    }
+
+    private String extractInvoiceNumber(CharSequence text) {
         Matcher matcher = INVOICE_NUMBER_PATTERN.matcher(text);
         if (matcher.find()) {
             return matcher.group(1).trim();
@@ -77,7 +431,7 @@ public class PDFExtractor {
         return "N/A";
     }
 
-    private String extractDate(String text) {
+    private String extractDate(CharSequence text) {
         Matcher matcher = DATE_PATTERN.matcher(text);
         if (matcher.find()) {
             return matcher.group(1);
@@ -85,7 +439,7 @@ public class PDFExtractor {
         return "N/A";
     }
 
-    private double extractTotal(String text) {
+    private double extractTotal(CharSequence text) {
         Matcher matcher = TOTAL_PATTERN.matcher(text);
         if (matcher.find()) {
             return parseAmount(matcher.group(1));
@@ -93,7 +447,7 @@ public class PDFExtractor {
         return 0.0;
     }
 
-    private double extractSubtotal(String text) {
+    private double extractSubtotal(CharSequence text) {
         Matcher matcher = SUBTOTAL_PATTERN.matcher(text);
         if (matcher.find()) {
             return parseAmount(matcher.group(1));
@@ -101,7 +455,7 @@ public class PDFExtractor {
         return 0.0;
     }
 
-    private double extractTax(String text) {
+    private double extractTax(CharSequence text) {
         Matcher matcher = TAX_PATTERN.matcher(text);
         if (matcher.find()) {
             return parseAmount(matcher.group(1));
@@ -109,9 +463,9 @@ public class PDFExtractor {
         return 0.0;
     }
 
-    private String extractVendorName(String text) {
+    private String extractVendorName(CharSequence text) {
         // Simple heuristic: first non-empty line is often the vendor name
-        String[] lines = text.split("\n");
+        String[] lines = text.toString().split("\n");
         for (String line : lines) {
             line = line.trim();
             if (!line.isEmpty() && line.length() > 3) {
@@ -121,14 +475,10 @@ public class PDFExtractor {
         return "N/A";
     }
 
-    private void extractLineItems(String text, InvoiceData invoice) {
+    private void extractLineItems(CharSequence text, InvoiceData invoice) {
         // Simplified line item extraction
         // Look for patterns like: Description Qty Price Amount
-        Pattern itemPattern = Pattern.compile(
-            "([A-Za-z][A-Za-z\\s]+)\\s+(\\d+)\\s+\\$?([0-9,]+\\.\\d{2})\\s+\\$?([0-9,]+\\.\\d{2})"
-        );
-        
-        Matcher matcher = itemPattern.matcher(text);
+        Matcher matcher = LINE_ITEM_PATTERN.matcher(text);
         while (matcher.find()) {
             LineItem item = new LineItem();
             item.setDescription(matcher.group(1).trim());
@@ -139,6 +489,104 @@ public class PDFExtractor {
         }
     }
 
+    /**
+     * Opens another copy of the document being extracted
+     */
+    private interface DocumentLoader {
+        PDDocument load(FontCache.DocumentCache fonts) throws IOException;
+    }
+
+    /**
+     * PDFBox's buffered file reader, marking failures to read the file transient
+     * so they can be told apart from the parser's complaints about its content
+     */
+    private static final class GuardedFileInput extends RandomAccessBufferedFileInputStream {
+        private final String name;
+
+        GuardedFileInput(File file) throws IOException {
+            super(file);
+            this.name = file.getName();
+        }
+
+        // Every read of the file goes through seek; peek, skip and readFully go through these
+        @Override
+        public void seek(long position) throws IOException {
+            try {
+                super.seek(position);
+            } catch (IOException e) {
+                throw TransientIOException.of(name, e);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return super.read();
+            } catch (IOException e) {
+                throw TransientIOException.of(name, e);
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            try {
+                return super.read(buffer, offset, length);
+            } catch (IOException e) {
+                throw TransientIOException.of(name, e);
+            }
+        }
+    }
+
+    /**
+     * A text stripper that can be kept between documents. PDFTextStripper
+     * holds on to the last document, its last page, the text written and
+     * the positions of the last page's characters until the next run, so a
+     * pooled stripper would keep a whole closed document reachable from
+     * every idle thread; this one lets go of them once the text is out.
+     */
+    static final class PooledTextStripper extends PDFTextStripper {
+        private static final PDContentStream EMPTY_STREAM = new PDContentStream() {
+            @Override
+            public InputStream getContents() {
+                return new ByteArrayInputStream(new byte[0]);
+            }
+
+            @Override
+            public PDResources getResources() {
+                return null;
+            }
+
+            @Override
+            public PDRectangle getBBox() {
+                return null;
+            }
+
+            @Override
+            public Matrix getMatrix() {
+                return new Matrix();
+            }
+        };
+
+        // Stands in for the last page; written to by the engine, so one per stripper
+        private final PDPage blankPage = new PDPage(new PDRectangle(1, 1));
+
+        PooledTextStripper() throws IOException {
+        }
+
+        /**
+         * The text of the selected pages, keeping nothing of the document afterwards
+         */
+        String strip(PDDocument document) throws IOException {
+            String text = getText(document);
+            this.document = null;
+            this.output = null;
+            this.charactersByArticle = new ArrayList<>();
+            // The engine only forgets its current page at the end of a child stream
+            processChildStream(EMPTY_STREAM, blankPage);
+            return text;
+        }
+    }
+
     /**
      * Parse amount string to double, removing commas and dollar signs
      */
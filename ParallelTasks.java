@@ -0,0 +1,99 @@
+package com.invoiceparser.extractors;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Runs the independent parts of one document (page ranges, invoice segments)
+ * on a shared executor.
+ *
+ * The calling thread runs the first part itself and then any part no pool
+ * thread has picked up yet, so a caller that is itself a pool thread can
+ * never deadlock waiting for work queued behind it.
+ *
+ * Parts still running when the result is no longer needed are interrupted.
+ * Pool threads are shared with other work, so they start and leave each
+ * part with their interrupt status cleared.
+ */
+final class ParallelTasks {
+
+    private ParallelTasks() {
+    }
+
+    /**
+     * Run every task and return the results in task order.
+     * With a null executor the tasks run one after another on the calling thread.
+     */
+    static <T> List<T> invokeAll(Executor executor, List<Callable<T>> tasks) throws IOException {
+        List<FutureTask<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            futures.add(new FutureTask<>(task));
+        }
+        if (executor != null) {
+            Thread caller = Thread.currentThread();
+            for (int i = 1; i < futures.size(); i++) {
+                FutureTask<T> future = futures.get(i);
+                executor.execute(() -> runPart(future, caller));
+            }
+        }
+
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (FutureTask<T> future : futures) {
+                // No-op if a pool thread already started this task
+                future.run();
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while extracting document parts");
+        } catch (CancellationException e) {
+            throw new InterruptedIOException("Document extraction was cancelled");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException("Document extraction failed", cause);
+        } finally {
+            // Stop the remaining parts once the result can no longer be used
+            for (FutureTask<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Run a part on an executor thread. A stale interrupt must not fail the
+     * part, and the interrupt that cancels it must not fail the thread's next
+     * task; FutureTask.run returns only once a cancelling interrupt has been
+     * delivered, so clearing it afterwards cannot miss it. The calling thread's
+     * own interrupt status is left alone.
+     */
+    private static void runPart(FutureTask<?> future, Thread caller) {
+        if (Thread.currentThread() == caller) {
+            future.run();
+            return;
+        }
+        Thread.interrupted();
+        try {
+            future.run();
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
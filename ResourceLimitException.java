@@ -0,0 +1,14 @@
+package com.invoiceparser.extractors;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a document exceeds the memory budget allowed for a single input
+ */
+public class ResourceLimitException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public ResourceLimitException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
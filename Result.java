@@ -0,0 +1,57 @@
+package com.invoiceparser.models;
+
+/**
+ * Outcome of parsing one input: either a value or the error that prevented it
+ */
+public class Result<T> {
+    private final String sourceName;
+    private final T value;
+    private final Throwable error;
+
+    private Result(String sourceName, T value, Throwable error) {
+        this.sourceName = sourceName;
+        this.value = value;
+        this.error = error;
+    }
+
+    public static <T> Result<T> success(String sourceName, T value) {
+        return new Result<>(sourceName, value, null);
+    }
+
+    public static <T> Result<T> failure(String sourceName, Throwable error) {
+        return new Result<>(sourceName, null, error);
+    }
+
+    /**
+     * Name of the input this result was parsed from
+     */
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * Parsed value, or null if parsing failed
+     */
+    public T getValue() {
+        return value;
+    }
+
+    /**
+     * Error that prevented parsing, or null on success
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "Result{" +
+                "sourceName='" + sourceName + '\'' +
+                (isSuccess() ? ", value=" + value : ", error=" + error) +
+                '}';
+    }
+}
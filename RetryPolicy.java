@@ -0,0 +1,93 @@
+package com.invoiceparser.batch;
+
+import com.invoiceparser.extractors.ResourceLimitException;
+import com.invoiceparser.io.TransientIOException;
+import org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException;
+
+import java.io.FileNotFoundException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+
+/**
+ * Decides whether a failed input is worth another attempt.
+ * Attempts are counted across resumed runs, not just within one run.
+ */
+public class RetryPolicy {
+    private static final int MAX_CAUSE_DEPTH = 8;
+
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    /**
+     * @param maxAttempts   total attempts per input, including the first one
+     * @param backoffMillis delay before a retry, multiplied by the attempt number
+     */
+    public RetryPolicy(int maxAttempts, long backoffMillis) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1: " + maxAttempts);
+        }
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+    }
+
+    /**
+     * Single attempt, never retry
+     */
+    public static RetryPolicy none() {
+        return new RetryPolicy(1, 0);
+    }
+
+    /**
+     * Only failures of the file system or network may be transient, judged
+     * by the exception types along the cause chain. Parsers (PDFBox, OpenCSV,
+     * archive readers) also report malformed input as plain IOException, so a
+     * plain IOException is only transient when the code reading the input or
+     * writing the output marked it so ({@link TransientIOException}). Missing,
+     * unreadable, encrypted and oversized inputs fail the same way every time.
+     */
+    public boolean isRetryable(Throwable error) {
+        boolean transientCause = false;
+        int depth = 0;
+        for (Throwable cause = error; cause != null && depth < MAX_CAUSE_DEPTH; cause = cause.getCause(), depth++) {
+            if (isPermanent(cause)) {
+                return false;
+            }
+            transientCause |= isTransient(cause);
+        }
+        return transientCause;
+    }
+
+    private static boolean isPermanent(Throwable error) {
+        return error instanceof FileNotFoundException
+                || error instanceof NoSuchFileException
+                || error instanceof AccessDeniedException
+                || error instanceof NotDirectoryException
+                || error instanceof FileAlreadyExistsException
+                || error instanceof InvalidPasswordException
+                || error instanceof ResourceLimitException;
+    }
+
+    private static boolean isTransient(Throwable error) {
+        return error instanceof TransientIOException
+                || error instanceof SocketException
+                || error instanceof SocketTimeoutException
+                || error instanceof FileSystemException;
+    }
+
+    public boolean canRetry(boolean retryable, int attempts) {
+        return retryable && attempts < maxAttempts;
+    }
+
+    public long getBackoffMillis(int attempts) {
+        return backoffMillis * attempts;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+}
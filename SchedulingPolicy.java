@@ -0,0 +1,36 @@
+package com.invoiceparser.batch;
+
+/**
+ * Order in which the files of a batch are handed to the workers
+ */
+public enum SchedulingPolicy {
+    /**
+     * In the order the inputs were listed
+     */
+    LISTED,
+
+    /**
+     * Most expensive files first, so no large file starts near the end of the batch
+     */
+    LONGEST_FIRST,
+
+    /**
+     * Large files on a quarter of the workers, small files on the rest,
+     * each most expensive first, so small files never queue behind large ones
+     */
+    SPLIT;
+
+    public static SchedulingPolicy fromString(String value) {
+        switch (value.toLowerCase()) {
+            case "listed":
+                return LISTED;
+            case "longest-first":
+                return LONGEST_FIRST;
+            case "split":
+                return SPLIT;
+            default:
+                throw new IllegalArgumentException("Unsupported scheduling policy: " + value
+                        + ". Use 'listed', 'longest-first' or 'split'.");
+        }
+    }
+}
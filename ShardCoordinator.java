@@ -0,0 +1,347 @@
+package com.invoiceparser.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Hands out work units to worker processes through a shared directory.
+ *
+ * Every state change is an atomic rename, so workers on different hosts need
+ * nothing but a shared filesystem with atomic rename (local disks, NFS):
+ * <pre>
+ * plan/todo/unit-00001                 not yet claimed (one input name per line)
+ * plan/leases/.claim-unit-00001@worker-a  being claimed; stamped before it becomes a lease
+ * plan/leases/unit-00001@worker-a      claimed; the lease is renewed by touching the file
+ * plan/done/unit-00001@worker-a        finished, by the worker whose results count
+ * plan/summaries/unit-00001@worker-a.json  per-unit results of each worker, merged at the end
+ * plan/journals/worker-a.journal       checkpoint journal of each worker
+ * </pre>
+ * A lease that has not been renewed for the lease duration belongs to a dead
+ * worker and is renamed over to whichever worker notices first. Hosts'
+ * clocks should agree to well within the lease duration.
+ *
+ * A claimed unit keeps the timestamp of the file it was moved from, so it
+ * first goes to a claim name, is stamped there and only then renamed to its
+ * lease name: no worker ever sees a fresh lease that still looks expired.
+ * A worker that finds the lease it moved was renewed in the meantime gives
+ * it back.
+ *
+ * Each worker writes its unit results under its own name, so a worker whose
+ * lease expired never overwrites those of the worker that took the unit
+ * over; only the results of the worker that completed the unit are merged.
+ */
+public class ShardCoordinator implements AutoCloseable {
+    public static final long DEFAULT_LEASE_MILLIS = 60 * 1000;
+
+    private static final String LEASE_SEPARATOR = "@";
+    private static final String CLAIM_PREFIX = ".claim-";
+
+    /**
+     * A claimed unit of work
+     */
+    public static class WorkUnit {
+        private final String id;
+        private final List<String> inputs;
+        private final Path lease;
+
+        WorkUnit(String id, List<String> inputs, Path lease) {
+            this.id = id;
+            this.inputs = inputs;
+            this.lease = lease;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * Names of the input files, relative to the input directory
+         */
+        public List<String> getInputs() {
+            return inputs;
+        }
+    }
+
+    private final Path shardDir;
+    private final Path plan;
+    private final String workerId;
+    private final long leaseMillis;
+    private final ScheduledExecutorService heartbeat;
+    private volatile Path activeLease;
+
+    public ShardCoordinator(File shardDir, String workerId, long leaseMillis) {
+        if (workerId.isEmpty() || workerId.contains(LEASE_SEPARATOR) || workerId.contains("/") || workerId.contains("\\")) {
+            throw new IllegalArgumentException("Worker id must be non-empty and contain no '@', '/' or '\\': " + workerId);
+        }
+        this.shardDir = shardDir.toPath();
+        this.plan = this.shardDir.resolve("plan");
+        this.workerId = workerId;
+        this.leaseMillis = leaseMillis;
+
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "shard-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, leaseMillis / 3);
+        heartbeat.scheduleAtFixedRate(this::renewLease, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Host name plus process id, unique enough for workers sharing a directory.
+     * A restarted worker gets a new id and so a fresh journal; pass a stable
+     * id per worker to skip the files it had already finished.
+     */
+    public static String defaultWorkerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = "localhost";
+        }
+        return host.replaceAll("[@/\\\\]", "_") + "-" + ProcessHandle.current().pid();
+    }
+
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    /**
+     * Split the inputs into units of {@code unitSize}, unless some worker
+     * already did. The plan is built in a private directory and renamed into
+     * place, so exactly one worker's plan wins.
+     */
+    public void plan(List<String> inputs, int unitSize) throws IOException {
+        if (Files.isDirectory(plan)) {
+            return;
+        }
+
+        Files.createDirectories(shardDir);
+        Path staging = Files.createTempDirectory(shardDir, "plan-" + workerId + "-");
+        try {
+            Path todo = Files.createDirectory(staging.resolve("todo"));
+            Files.createDirectory(staging.resolve("leases"));
+            Files.createDirectory(staging.resolve("done"));
+            Files.createDirectory(staging.resolve("summaries"));
+            Files.createDirectory(staging.resolve("journals"));
+
+            for (int start = 0, unit = 1; start < inputs.size(); start += unitSize, unit++) {
+                List<String> names = inputs.subList(start, Math.min(start + unitSize, inputs.size()));
+                Files.write(todo.resolve(String.format("unit-%05d", unit)), names, StandardCharsets.UTF_8);
+            }
+
+            Files.move(staging, plan, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (!Files.isDirectory(plan)) {
+                throw e;
+            }
+            // Another worker's plan won the race
+        } finally {
+            deleteRecursively(staging);
+        }
+    }
+
+    /**
+     * Claim an unclaimed unit, or else take over an expired lease.
+     * Returns null if every remaining unit is held by a live worker.
+     */
+    public WorkUnit claim() throws IOException {
+        List<Path> todo = list(plan.resolve("todo"));
+        // Start at a random unit so workers do not all race for the same file
+        Collections.shuffle(todo);
+
+        for (Path unit : todo) {
+            WorkUnit claimed = take(unit, unit.getFileName().toString(), -1);
+            if (claimed != null) {
+                return claimed;
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        for (Path lease : list(plan.resolve("leases"))) {
+            long lastRenewed;
+            try {
+                lastRenewed = Files.getLastModifiedTime(lease).toMillis();
+            } catch (NoSuchFileException e) {
+                continue;
+            }
+            if (now - lastRenewed < leaseMillis) {
+                continue;
+            }
+
+            // Also covers claims abandoned by a worker that died halfway
+            String name = lease.getFileName().toString();
+            if (name.startsWith(CLAIM_PREFIX)) {
+                name = name.substring(CLAIM_PREFIX.length());
+            }
+            String id = name.substring(0, name.indexOf(LEASE_SEPARATOR));
+            WorkUnit claimed = take(lease, id, lastRenewed);
+            if (claimed != null) {
+                System.out.println("↻ Reclaimed expired lease on " + id + " from " + name.substring(id.length() + 1));
+                return claimed;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Move a unit to this worker's lease by way of its claim name.
+     * Returns null if another worker moved it first, or if it is a lease
+     * renewed since it was seen {@code lastRenewed} (then it is given back).
+     *
+     * @param lastRenewed timestamp of the expired lease being taken over, or -1 for a todo unit
+     */
+    private WorkUnit take(Path from, String id, long lastRenewed) throws IOException {
+        Path claiming = plan.resolve("leases").resolve(CLAIM_PREFIX + id + LEASE_SEPARATOR + workerId);
+        Path lease = leaseFor(id);
+        try {
+            Files.move(from, claiming, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+
+        try {
+            // The rename kept the timestamp: unchanged means its owner did not renew it after all
+            if (lastRenewed >= 0 && Files.getLastModifiedTime(claiming).toMillis() != lastRenewed) {
+                Files.move(claiming, from, StandardCopyOption.ATOMIC_MOVE);
+                return null;
+            }
+            Files.setLastModifiedTime(claiming, FileTime.fromMillis(System.currentTimeMillis()));
+            Files.move(claiming, lease, StandardCopyOption.ATOMIC_MOVE);
+            return activate(id, lease);
+        } catch (NoSuchFileException e) {
+            // Taken over while being claimed
+            return null;
+        }
+    }
+
+    /**
+     * Mark a unit finished, publishing the results written to its
+     * {@link #getSummaryFile summary file}. Returns false if the lease was
+     * lost to another worker in the meantime (that worker will finish the
+     * unit again); the results are then discarded.
+     */
+    public boolean complete(WorkUnit unit) throws IOException {
+        activeLease = null;
+        try {
+            Files.move(unit.lease, plan.resolve("done").resolve(unit.lease.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (NoSuchFileException e) {
+            Files.deleteIfExists(getSummaryFile(unit).toPath());
+            return false;
+        }
+    }
+
+    /**
+     * Whether every unit has been completed
+     */
+    public boolean isFinished() throws IOException {
+        return list(plan.resolve("todo")).isEmpty() && list(plan.resolve("leases")).isEmpty();
+    }
+
+    /**
+     * How long to wait before asking again when all remaining units are leased
+     */
+    public long getPollMillis() {
+        return Math.max(100, Math.min(1000, leaseMillis / 4));
+    }
+
+    /**
+     * Where this worker writes the results of a unit before completing it
+     */
+    public File getSummaryFile(WorkUnit unit) {
+        return plan.resolve("summaries").resolve(unit.lease.getFileName() + ".json").toFile();
+    }
+
+    /**
+     * Summaries of all completed units, each written by the worker that completed it
+     */
+    public List<File> getSummaryFiles() throws IOException {
+        List<File> summaries = new ArrayList<>();
+        for (Path done : list(plan.resolve("done"))) {
+            summaries.add(plan.resolve("summaries").resolve(done.getFileName() + ".json").toFile());
+        }
+        return summaries;
+    }
+
+    public File getMergedSummaryFile() {
+        return plan.resolve("summary.json").toFile();
+    }
+
+    /**
+     * Checkpoint journal of this worker, kept with the plan it belongs to
+     */
+    public File getJournalFile() {
+        return plan.resolve("journals").resolve(workerId + ".journal").toFile();
+    }
+
+    private WorkUnit activate(String id, Path lease) throws IOException {
+        Files.setLastModifiedTime(lease, FileTime.fromMillis(System.currentTimeMillis()));
+        activeLease = lease;
+        return new WorkUnit(id, Files.readAllLines(lease, StandardCharsets.UTF_8), lease);
+    }
+
+    private Path leaseFor(String id) {
+        return plan.resolve("leases").resolve(id + LEASE_SEPARATOR + workerId);
+    }
+
+    private void renewLease() {
+        Path lease = activeLease;
+        if (lease == null) {
+            return;
+        }
+        try {
+            Files.setLastModifiedTime(lease, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            System.err.println("⚠ Lease lost: " + lease.getFileName());
+            activeLease = null;
+        } catch (IOException e) {
+            System.err.println("⚠ Could not renew lease " + lease.getFileName() + ": " + e.getMessage());
+        }
+    }
+
+    private static List<Path> list(Path dir) throws IOException {
+        List<Path> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path entry : stream) {
+                entries.add(entry);
+            }
+        }
+        entries.sort(Comparator.naturalOrder());
+        return entries;
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        activeLease = null;
+        heartbeat.shutdownNow();
+    }
+}
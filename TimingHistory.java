@@ -0,0 +1,73 @@
+package com.invoiceparser.batch;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parse times of earlier batches, per vendor, for estimating the cost of new files.
+ *
+ * The vendor of a file is only known once it has been parsed, so files are
+ * matched to vendors by directory, name prefix and extension: e.g.
+ * {@code acme-2024-03.pdf} and {@code acme-2024-04.pdf} share {@code acme*.pdf},
+ * while the archive entries {@code acme/inv-0001.pdf} and {@code globex/inv-0001.pdf}
+ * are told apart by their directories. Names that start with a digit fall
+ * back to the name with its digits removed.
+ */
+public class TimingHistory {
+    public static final String DEFAULT_FILE_NAME = ".invoice-parser-timings";
+
+    // Letters a file name starts with, e.g. "acme" in acme-2024-03.pdf
+    private static final Pattern NAME_PREFIX = Pattern.compile("\\p{L}+");
+
+    // Weight of the newest sample in the moving average
+    private static final double SMOOTHING = 0.3;
+
+    private Map<String, String> vendorsByPattern = new HashMap<>();
+    private Map<String, Double> millisPerPageByVendor = new HashMap<>();
+    private double millisPerPage;
+
+    /**
+     * Record how long a file took; {@code pages} may be estimated from the file size
+     */
+    public synchronized void record(String sourceName, String vendor, long millis, double pages) {
+        if (pages <= 0) {
+            return;
+        }
+        double rate = millis / pages;
+
+        millisPerPage = millisPerPage > 0 ? smooth(millisPerPage, rate) : rate;
+        if (vendor != null && !vendor.isEmpty() && !vendor.equals("N/A")) {
+            vendorsByPattern.put(patternOf(sourceName), vendor);
+            millisPerPageByVendor.merge(vendor, rate, TimingHistory::smooth);
+        }
+    }
+
+    /**
+     * Average milliseconds per page for files named like this one, falling
+     * back to the average over all files (0 if nothing was recorded yet)
+     */
+    public synchronized double getMillisPerPage(String sourceName) {
+        String vendor = vendorsByPattern.get(patternOf(sourceName));
+        Double rate = vendor != null ? millisPerPageByVendor.get(vendor) : null;
+        return rate != null ? rate : millisPerPage;
+    }
+
+    private static double smooth(double average, double sample) {
+        return average + SMOOTHING * (sample - average);
+    }
+
+    static String patternOf(String sourceName) {
+        int slash = sourceName.lastIndexOf('/');
+        String directory = sourceName.substring(0, slash + 1);
+        String name = sourceName.substring(slash + 1);
+
+        Matcher prefix = NAME_PREFIX.matcher(name);
+        String pattern = prefix.lookingAt()
+                ? prefix.group() + "*" + name.substring(Math.max(0, name.lastIndexOf('.')))
+                : name.replaceAll("\\d+", "");
+        return (directory + pattern).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,77 @@
+package com.invoiceparser.io;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input could not be read, or an output written, because of the disk,
+ * file system or network (EIO, a stale NFS handle, a full disk) rather than
+ * because of its content, so another attempt may succeed.
+ *
+ * Parsers report malformed content as plain IOExceptions too, so a failure
+ * is marked transient where the bytes are read or written, which is the
+ * only place that can tell the two apart.
+ */
+public class TransientIOException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public TransientIOException(String name, IOException cause) {
+        super(name + ": " + cause.getMessage(), cause);
+    }
+
+    /**
+     * Mark a failure to read or write {@code name} as transient. A premature
+     * end of file is the content's fault and is passed through unchanged.
+     */
+    public static IOException of(String name, IOException e) {
+        if (e instanceof TransientIOException || e instanceof EOFException) {
+            return e;
+        }
+        return new TransientIOException(name, e);
+    }
+
+    /**
+     * A stream whose read failures are marked transient
+     */
+    public static InputStream guard(String name, InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                try {
+                    return super.read();
+                } catch (IOException e) {
+                    throw of(name, e);
+                }
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                try {
+                    return in.read(buffer, offset, length);
+                } catch (IOException e) {
+                    throw of(name, e);
+                }
+            }
+
+            @Override
+            public long skip(long count) throws IOException {
+                try {
+                    return super.skip(count);
+                } catch (IOException e) {
+                    throw of(name, e);
+                }
+            }
+
+            @Override
+            public int available() throws IOException {
+                try {
+                    return super.available();
+                } catch (IOException e) {
+                    throw of(name, e);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,145 @@
+package com.invoiceparser;
+
+import com.invoiceparser.batch.BatchOptions;
+import com.invoiceparser.batch.BatchSummary;
+import com.invoiceparser.batch.CheckpointJournal;
+import com.invoiceparser.batch.RetryPolicy;
+import com.invoiceparser.batch.ShardCoordinator;
+import com.invoiceparser.batch.TimingHistory;
+import com.invoiceparser.reports.InvoiceAggregator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvoiceParserResumeTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void resumeSkipsFinishedAndPermanentlyFailedFiles() throws Exception {
+        File input = Files.createDirectory(dir.resolve("in")).toFile();
+        File output = dir.resolve("out").toFile();
+        writeCsv(input, "a.csv", "INV-A", "Acme", 100);
+        writeCsv(input, "b.csv", "INV-B", "Acme", 200);
+        Files.write(new File(input, "broken.pdf").toPath(), "not a pdf".getBytes(StandardCharsets.US_ASCII));
+
+        try (InvoiceParser parser = new InvoiceParser()) {
+            BatchSummary first = parser.parseDirectory(input, output, "json", options(false, null));
+            assertEquals(2, first.getSuccessCount());
+            assertEquals(1, first.getFailCount());
+        }
+
+        Map<String, CheckpointJournal.Entry> journal =
+                CheckpointJournal.load(new File(output, CheckpointJournal.DEFAULT_FILE_NAME));
+        assertEquals(CheckpointJournal.Status.DONE, journal.get("a.csv").getStatus());
+        assertEquals(CheckpointJournal.Status.FAILED, journal.get("broken.pdf").getStatus());
+        assertFalse(journal.get("broken.pdf").isRetryable());
+
+        writeCsv(input, "c.csv", "INV-C", "Globex", 50);
+        InvoiceAggregator aggregator = new InvoiceAggregator(InvoiceAggregator.GroupBy.VENDOR);
+        try (InvoiceParser parser = new InvoiceParser()) {
+            BatchSummary resumed = parser.parseDirectory(input, output, "json", options(true, aggregator));
+            assertEquals(1, resumed.getSuccessCount());
+            assertEquals(0, resumed.getFailCount());
+            assertEquals(3, resumed.getSkippedCount());
+        }
+
+        // Files finished by the first run are reloaded into the report
+        assertEquals(3, aggregator.getGrandTotal().getInvoiceCount());
+        assertEquals(350, aggregator.getGrandTotal().getTotalAmount(), 0.001);
+        assertTrue(new File(output, "c.json").exists());
+    }
+
+    @Test
+    void resumeReparsesFileThatWasRunningWhenProcessDied() throws Exception {
+        File input = Files.createDirectory(dir.resolve("in")).toFile();
+        File output = Files.createDirectory(dir.resolve("out")).toFile();
+        writeCsv(input, "a.csv", "INV-A", "Acme", 100);
+        writeCsv(input, "b.csv", "INV-B", "Acme", 200);
+
+        // A previous run finished a.csv and died while parsing b.csv
+        try (CheckpointJournal journal = new CheckpointJournal(new File(output, CheckpointJournal.DEFAULT_FILE_NAME), true)) {
+            journal.started("a.csv");
+            journal.done("a.csv");
+            journal.started("b.csv");
+        }
+
+        try (InvoiceParser parser = new InvoiceParser()) {
+            BatchSummary resumed = parser.parseDirectory(input, output, "json", options(true, null));
+            assertEquals(1, resumed.getSuccessCount());
+            assertEquals(1, resumed.getSkippedCount());
+        }
+
+        assertTrue(new File(output, "b.json").exists());
+        assertFalse(new File(output, "a.json").exists());
+        CheckpointJournal.Entry entry = CheckpointJournal.load(new File(output, CheckpointJournal.DEFAULT_FILE_NAME)).get("b.csv");
+        assertEquals(CheckpointJournal.Status.DONE, entry.getStatus());
+        assertEquals(2, entry.getAttempts());
+    }
+
+    @Test
+    void restartedShardWorkerCountsFilesItFinishedAsSuccesses() throws Exception {
+        File input = Files.createDirectory(dir.resolve("in")).toFile();
+        File output = dir.resolve("out").toFile();
+        File shard = dir.resolve("shard").toFile();
+        writeCsv(input, "a.csv", "INV-A", "Acme", 100);
+        writeCsv(input, "b.csv", "INV-B", "Acme", 200);
+
+        // The worker finished a.csv of its unit and died before completing the unit
+        try (ShardCoordinator before = new ShardCoordinator(shard, "w0", 1000)) {
+            before.plan(Arrays.asList("a.csv", "b.csv"), 2);
+            assertNotNull(before.claim());
+            try (CheckpointJournal journal = new CheckpointJournal(before.getJournalFile(), true)) {
+                journal.started("a.csv");
+                journal.done("a.csv");
+            }
+        }
+        Files.setLastModifiedTime(shard.toPath().resolve("plan/leases/unit-00001@w0"), FileTime.fromMillis(0));
+
+        try (InvoiceParser parser = new InvoiceParser();
+             ShardCoordinator coordinator = new ShardCoordinator(shard, "w0", 1000)) {
+            BatchSummary merged = parser.parseShard(input, output, "json", options(false, null), coordinator, 2);
+            assertEquals(2, merged.getSuccessCount());
+            assertEquals(0, merged.getSkippedCount());
+        }
+
+        assertTrue(new File(output, "b.json").exists());
+        assertTrue(new File(output, TimingHistory.DEFAULT_FILE_NAME).exists());
+    }
+
+    private static BatchOptions options(boolean resume, InvoiceAggregator aggregator) {
+        BatchOptions options = new BatchOptions();
+        options.setResume(resume);
+        options.setRetryPolicy(new RetryPolicy(3, 0));
+        options.setParallelism(2);
+        options.setAggregator(aggregator);
+        return options;
+    }
+
+    private static void writeCsv(File dir, String name, String number, String vendor, double total) throws IOException {
+        String csv = "Invoice Number," + number + "\n"
+                + "Date,2024-01-15\n"
+                + "Vendor," + vendor + "\n"
+                + "Subtotal," + total + "\n"
+                + "Tax,0.00\n"
+                + "Total," + total + "\n"
+                + "\n"
+                + "Description,Quantity,Unit Price,Amount\n"
+                + "Widget,1," + total + "," + total + "\n";
+        Files.write(new File(dir, name).toPath(), csv.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,54 @@
+package com.invoiceparser;
+
+import com.invoiceparser.batch.BatchOptions;
+import com.invoiceparser.batch.BatchSummary;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvoiceParserTest {
+
+    private static final String STATEMENT = "Invoice Number,INV-1\n"
+            + "Description,Quantity,Unit Price,Amount\n"
+            + "Widget,1,10.00,10.00\n"
+            + "Total,10.00\n"
+            + "Invoice Number,INV-2\n"
+            + "Description,Quantity,Unit Price,Amount\n"
+            + "Gadget,1,20.00,20.00\n"
+            + "Total,20.00\n";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void statementsAreSplitOnlyWhenAskedTo() throws Exception {
+        File input = Files.createDirectory(dir.resolve("in")).toFile();
+        Files.write(new File(input, "statement.csv").toPath(), STATEMENT.getBytes(StandardCharsets.UTF_8));
+
+        File whole = dir.resolve("whole").toFile();
+        File split = dir.resolve("split").toFile();
+        try (InvoiceParser parser = new InvoiceParser()) {
+            BatchOptions options = new BatchOptions();
+            options.setParallelism(1);
+            BatchSummary summary = parser.parseDirectory(input, whole, "json", options);
+            assertEquals(1, summary.getSuccessCount());
+
+            options.setSplitInvoices(true);
+            parser.parseDirectory(input, split, "json", options);
+        }
+
+        assertTrue(new File(whole, "statement.json").exists());
+        assertFalse(new File(whole, "statement-1.json").exists());
+        assertTrue(new File(split, "statement-1.json").exists());
+        assertTrue(new File(split, "statement-2.json").exists());
+        assertFalse(new File(split, "statement.json").exists());
+    }
+}
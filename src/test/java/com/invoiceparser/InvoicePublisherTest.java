@@ -0,0 +1,247 @@
+package com.invoiceparser;
+
+import com.invoiceparser.io.InvoiceSource;
+import com.invoiceparser.models.InvoiceData;
+import com.invoiceparser.models.Result;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvoicePublisherTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    /**
+     * Returns an invoice numbered after the source; names starting with
+     * "fail", "deep" or "fatal" throw an exception, overflow or error
+     */
+    private final InvoiceParser parser = new InvoiceParser() {
+        @Override
+        public InvoiceData parse(InvoiceSource source) throws Exception {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+                if (source.getName().startsWith("fail")) {
+                    throw new IllegalArgumentException("Unsupported file format");
+                }
+                if (source.getName().startsWith("deep")) {
+                    throw new StackOverflowError();
+                }
+                if (source.getName().startsWith("fatal")) {
+                    throw new NoClassDefFoundError("org/example/Missing");
+                }
+                InvoiceData invoice = new InvoiceData();
+                invoice.setInvoiceNumber(source.getName());
+                return invoice;
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    };
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+        parser.close();
+    }
+
+    @Test
+    void completesAfterExactlyTheRequestedResults() throws InterruptedException {
+        RecordingSubscriber subscriber = new RecordingSubscriber(3);
+        parser.publish(sources(3), executor, 2).subscribe(subscriber);
+
+        assertTrue(subscriber.done.await(5, TimeUnit.SECONDS), "onComplete not signalled");
+        assertEquals(3, subscriber.results.size());
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    void pullsNoMoreSourcesThanRequested() throws InterruptedException {
+        CountingSources sources = new CountingSources(10);
+        RecordingSubscriber subscriber = new RecordingSubscriber(2);
+        parser.publish(sources, executor, 4).subscribe(subscriber);
+
+        subscriber.awaitResults(2);
+        Thread.sleep(100);
+        assertEquals(2, sources.pulled.get());
+        assertEquals(2, subscriber.results.size());
+        assertFalse(subscriber.completed);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertTrue(subscriber.done.await(5, TimeUnit.SECONDS));
+        assertEquals(10, subscriber.results.size());
+        assertEquals(10, sources.pulled.get());
+    }
+
+    @Test
+    void parsesAtMostParallelismSourcesAtOnce() throws InterruptedException {
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        parser.publish(sources(20), executor, 3).subscribe(subscriber);
+
+        assertTrue(subscriber.done.await(5, TimeUnit.SECONDS));
+        assertEquals(20, subscriber.results.size());
+        assertTrue(maxRunning.get() <= 3, "ran " + maxRunning.get() + " at once");
+    }
+
+    @Test
+    void failedParsesAreDeliveredAsFailedResults() throws InterruptedException {
+        List<InvoiceSource> sources = new ArrayList<>(sources(2));
+        sources.add(InvoiceSource.of("fail.csv", new byte[0]));
+        sources.add(InvoiceSource.of("deep.pdf", new byte[0]));
+
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        parser.publish(sources, executor, 2).subscribe(subscriber);
+
+        assertTrue(subscriber.done.await(5, TimeUnit.SECONDS));
+        assertTrue(subscriber.completed);
+        assertEquals(4, subscriber.results.size());
+        assertEquals(2, subscriber.results.stream().filter(result -> !result.isSuccess()).count());
+    }
+
+    @Test
+    void fatalErrorEndsTheStreamWithOnError() throws InterruptedException {
+        List<InvoiceSource> sources = Collections.singletonList(InvoiceSource.of("fatal.pdf", new byte[0]));
+
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        parser.publish(sources, executor, 1).subscribe(subscriber);
+
+        assertTrue(subscriber.done.await(5, TimeUnit.SECONDS), "stream never terminated");
+        assertFalse(subscriber.completed);
+        assertTrue(subscriber.error instanceof NoClassDefFoundError);
+    }
+
+    @Test
+    void rejectedSourceIsClosedAndEndsTheStream(@TempDir File dir) throws IOException, InterruptedException {
+        File file = new File(dir, "invoice.csv");
+        Files.write(file.toPath(), "Invoice Number,INV-1".getBytes(StandardCharsets.UTF_8));
+        ExecutorService stopped = Executors.newSingleThreadExecutor();
+        stopped.shutdown();
+
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        parser.publish(Collections.singletonList(InvoiceSource.ofTemporaryFile("invoice.csv", file)), stopped, 1)
+                .subscribe(subscriber);
+
+        assertTrue(subscriber.done.await(5, TimeUnit.SECONDS), "stream never terminated");
+        assertTrue(subscriber.error instanceof RejectedExecutionException);
+        assertFalse(file.exists(), "rejected source was not closed");
+    }
+
+    @Test
+    void nonPositiveRequestIsAnError() throws InterruptedException {
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        parser.publish(sources(1), executor, 1).subscribe(subscriber);
+        subscriber.subscription.request(0);
+
+        assertTrue(subscriber.done.await(5, TimeUnit.SECONDS));
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertTrue(subscriber.results.isEmpty());
+    }
+
+    private static List<InvoiceSource> sources(int count) {
+        List<InvoiceSource> sources = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            sources.add(InvoiceSource.of("invoice-" + i + ".csv", ("Invoice Number,INV-" + i).getBytes(StandardCharsets.UTF_8)));
+        }
+        return sources;
+    }
+
+    /**
+     * Lazily created sources that count how many were pulled
+     */
+    private static class CountingSources implements Iterable<InvoiceSource> {
+        private final int count;
+        private final AtomicInteger pulled = new AtomicInteger();
+
+        CountingSources(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public Iterator<InvoiceSource> iterator() {
+            return new Iterator<InvoiceSource>() {
+                @Override
+                public boolean hasNext() {
+                    return pulled.get() < count;
+                }
+
+                @Override
+                public InvoiceSource next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    int i = pulled.getAndIncrement();
+                    return InvoiceSource.of("invoice-" + i + ".csv", new byte[0]);
+                }
+            };
+        }
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<Result<InvoiceData>> {
+        private final long initialRequest;
+        private final List<Result<InvoiceData>> results = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+        private volatile boolean completed;
+        private volatile Throwable error;
+
+        RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(Result<InvoiceData> result) {
+            results.add(result);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            done.countDown();
+        }
+
+        void awaitResults(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (results.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(count, results.size());
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.invoiceparser;
+
+import com.invoiceparser.batch.BatchOptions;
+import com.invoiceparser.batch.BatchSummary;
+import com.invoiceparser.batch.CheckpointJournal;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A corpus of hostile inputs, generated on the fly, run as one batch next to
+ * ordinary invoices: each hostile file must be quarantined by its time or
+ * memory budget while the ordinary ones still go through.
+ */
+class PathologicalInputTest {
+
+    private static final long MEMORY_BUDGET = 4L * 1024 * 1024;
+    private static final long TIMEOUT_MILLIS = 1000;
+
+    @TempDir
+    static Path dir;
+
+    private static File input;
+
+    @BeforeAll
+    static void createCorpus() throws IOException {
+        input = Files.createDirectory(dir.resolve("in")).toFile();
+
+        for (int i = 1; i <= 4; i++) {
+            Files.write(new File(input, "good-" + i + ".csv").toPath(), ("Invoice Number,INV-" + i + "\n"
+                    + "Vendor,Acme\nSubtotal,10.00\nTax,0.00\nTotal,10.00\n\n"
+                    + "Description,Quantity,Unit Price,Amount\nWidget,1,10.00,10.00\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        writeFlateBomb(new File(input, "flate-bomb.pdf"));
+        writeHugeStream(new File(input, "huge-stream.pdf"));
+        writeDeepObjects(new File(input, "deep-objects.pdf"));
+        writeDeepContent(new File(input, "deep-content.pdf"));
+        writeBacktrackingText(new File(input, "backtracking.pdf"));
+    }
+
+    @Test
+    void hostileFilesAreQuarantinedWhileTheBatchCompletes() {
+        File output = dir.resolve("out").toFile();
+        BatchOptions options = new BatchOptions();
+        options.setParallelism(2);
+        options.setTimeoutMillis(TIMEOUT_MILLIS);
+
+        // Unbounded, the backtracking file alone takes about a minute
+        BatchSummary summary = assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            try (InvoiceParser parser = new InvoiceParser(null, MEMORY_BUDGET)) {
+                return parser.parseDirectory(input, output, "json", options);
+            }
+        });
+
+        assertEquals(4, summary.getSuccessCount());
+        assertEquals(0, summary.getFailCount());
+        assertEquals(5, summary.getQuarantined().size(), summary.getQuarantined().toString());
+
+        Map<String, CheckpointJournal.Entry> journal;
+        try {
+            journal = CheckpointJournal.load(new File(output, CheckpointJournal.DEFAULT_FILE_NAME));
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        assertReason(journal, "flate-bomb.pdf", "Memory budget exceeded");
+        assertReason(journal, "huge-stream.pdf", "Memory budget exceeded");
+        assertReason(journal, "deep-objects.pdf", "Nesting too deep");
+        assertReason(journal, "deep-content.pdf", "Nesting too deep");
+        assertReason(journal, "backtracking.pdf", "Timed out");
+
+        for (String name : Arrays.asList("flate-bomb", "huge-stream", "deep-objects", "deep-content", "backtracking")) {
+            assertFalse(new File(output, name + ".json").exists(), name);
+        }
+    }
+
+    private static void assertReason(Map<String, CheckpointJournal.Entry> journal, String name, String reason) {
+        CheckpointJournal.Entry entry = journal.get(name);
+        assertEquals(CheckpointJournal.Status.POISONED, entry.getStatus(), name);
+        assertTrue(entry.getReason().startsWith(reason), name + ": " + entry.getReason());
+    }
+
+    /**
+     * 64 MB of spaces that deflate to a few hundred KB
+     */
+    private static void writeFlateBomb(File file) throws IOException {
+        byte[] spaces = new byte[1 << 20];
+        Arrays.fill(spaces, (byte) ' ');
+        try (PDDocument document = new PDDocument()) {
+            PDStream contents = new PDStream(document);
+            try (OutputStream out = contents.createOutputStream(COSName.FLATE_DECODE)) {
+                for (int i = 0; i < 64; i++) {
+                    out.write(spaces);
+                }
+            }
+            addPage(document, contents);
+            document.save(file);
+        }
+    }
+
+    /**
+     * A 16 MB uncompressed content stream
+     */
+    private static void writeHugeStream(File file) throws IOException {
+        byte[] spaces = new byte[16 << 20];
+        Arrays.fill(spaces, (byte) ' ');
+        try (PDDocument document = new PDDocument()) {
+            PDStream contents = new PDStream(document);
+            try (OutputStream out = contents.createOutputStream()) {
+                out.write(spaces);
+            }
+            addPage(document, contents);
+            document.save(file);
+        }
+    }
+
+    /**
+     * A catalog holding 100,000 nested dictionaries
+     */
+    private static void writeDeepObjects(File file) throws IOException {
+        StringBuilder nested = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            nested.append("<</A ");
+        }
+        String pdf = "%PDF-1.4\n1 0 obj\n<</Type/Catalog/Pages 2 0 R/X " + nested + ">>\nendobj\n"
+                + "2 0 obj\n<</Type/Pages/Kids[]/Count 0>>\nendobj\ntrailer\n<</Root 1 0 R>>\n%%EOF\n";
+        Files.write(file.toPath(), pdf.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * A page whose content stream opens 200,000 nested arrays
+     */
+    private static void writeDeepContent(File file) throws IOException {
+        byte[] brackets = new byte[200_000];
+        Arrays.fill(brackets, (byte) '[');
+        try (PDDocument document = new PDDocument()) {
+            PDStream contents = new PDStream(document);
+            try (OutputStream out = contents.createOutputStream(COSName.FLATE_DECODE)) {
+                out.write(brackets);
+            }
+            addPage(document, contents);
+            document.save(file);
+        }
+    }
+
+    /**
+     * Pages of "a a a ..." that make the line-item pattern backtrack quadratically
+     */
+    private static void writeBacktrackingText(File file) throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            line.append("a ");
+        }
+        try (PDDocument document = new PDDocument()) {
+            for (int p = 0; p < 12; p++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, 8);
+                    content.setLeading(10);
+                    content.newLineAtOffset(20, 780);
+                    for (int l = 0; l < 70; l++) {
+                        content.showText(line.toString());
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            document.save(file);
+        }
+    }
+
+    private static void addPage(PDDocument document, PDStream contents) {
+        PDPage page = new PDPage();
+        page.setContents(contents);
+        document.addPage(page);
+    }
+}
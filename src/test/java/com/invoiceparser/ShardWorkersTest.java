@@ -0,0 +1,107 @@
+package com.invoiceparser;
+
+import com.invoiceparser.batch.BatchSummary;
+import com.invoiceparser.batch.ShardCoordinator;
+import com.invoiceparser.formatters.OutputFormatter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs a shared directory batch with workers in separate JVMs, the way it
+ * runs across machines
+ */
+class ShardWorkersTest {
+    private static final int FILES = 12;
+    private static final int WORKERS = 3;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void workersInSeparateJvmsSplitTheDirectory() throws Exception {
+        File input = Files.createDirectory(dir.resolve("in")).toFile();
+        File output = dir.resolve("out").toFile();
+        File shard = dir.resolve("shard").toFile();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < FILES; i++) {
+            String name = String.format("inv-%02d.csv", i);
+            writeCsv(new File(input, name), "INV-" + i, 10 + i);
+            names.add(name);
+        }
+
+        // The first unit is held by a worker that died before finishing it
+        try (ShardCoordinator dead = new ShardCoordinator(shard, "dead", 1000)) {
+            dead.plan(names, 3);
+            assertNotNull(dead.claim());
+        }
+        File[] leases = new File(shard, "plan/leases").listFiles();
+        assertEquals(1, leases.length);
+        Files.setLastModifiedTime(leases[0].toPath(), FileTime.fromMillis(0));
+
+        List<Process> workers = new ArrayList<>();
+        for (int w = 0; w < WORKERS; w++) {
+            workers.add(startWorker(input, output, shard, "w" + w));
+        }
+        for (int w = 0; w < WORKERS; w++) {
+            String workerId = "w" + w;
+            Process worker = workers.get(w);
+            assertTrue(worker.waitFor(120, TimeUnit.SECONDS), workerId + " did not finish");
+            assertEquals(0, worker.exitValue(), () -> workerId + " log:\n" + log(workerId));
+        }
+
+        for (String name : names) {
+            assertTrue(new File(output, name.replace(".csv", ".json")).exists(), name);
+        }
+        BatchSummary merged = new OutputFormatter().readJsonObject(
+                new File(shard, "plan/summary.json").getAbsolutePath(), BatchSummary.class);
+        assertEquals(FILES, merged.getSuccessCount());
+        assertEquals(0, merged.getFailCount());
+    }
+
+    private Process startWorker(File input, File output, File shard, String workerId) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> command = new ArrayList<>(Arrays.asList(java, "-cp", System.getProperty("java.class.path"),
+                Main.class.getName(),
+                "-i", input.getAbsolutePath(), "-o", output.getAbsolutePath(),
+                "--shard-dir", shard.getAbsolutePath(), "--worker-id", workerId,
+                "--unit-size", "3", "--lease", "2", "-t", "1"));
+        File log = dir.resolve(workerId + ".log").toFile();
+        return new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start();
+    }
+
+    private String log(String workerId) {
+        try {
+            return new String(Files.readAllBytes(dir.resolve(workerId + ".log")), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return "(no log)";
+        }
+    }
+
+    private static void writeCsv(File file, String number, double total) throws IOException {
+        String csv = "Invoice Number," + number + "\n"
+                + "Date,2024-01-15\n"
+                + "Vendor,Acme\n"
+                + "Subtotal," + total + "\n"
+                + "Tax,0.00\n"
+                + "Total," + total + "\n"
+                + "\n"
+                + "Description,Quantity,Unit Price,Amount\n"
+                + "Widget,1," + total + "," + total + "\n";
+        Files.write(file.toPath(), csv.getBytes(StandardCharsets.UTF_8));
+    }
+}
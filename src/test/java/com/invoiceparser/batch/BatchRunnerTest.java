@@ -0,0 +1,131 @@
+package com.invoiceparser.batch;
+
+import com.invoiceparser.formatters.OutputFormatter;
+import com.invoiceparser.io.InvoiceSource;
+import com.invoiceparser.models.InvoiceData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchRunnerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void abandonedWorkerDoesNotWriteOutput() throws Exception {
+        File output = dir.resolve("slow.json").toFile();
+        OutputFormatter formatter = new OutputFormatter();
+        CountDownLatch finished = new CountDownLatch(1);
+
+        BatchRunner.Job job = (source, cancelled) -> {
+            // Ignores interrupts, like parsing code stuck outside java.util.regex
+            long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+            while (System.nanoTime() < until) {
+                Thread.interrupted();
+            }
+            try {
+                formatter.writeJson(new InvoiceData(), output.getAbsolutePath(), cancelled);
+            } finally {
+                finished.countDown();
+            }
+            return Collections.singletonList(new InvoiceData());
+        };
+
+        BatchRunner runner = run(job, 100, "slow.pdf");
+
+        assertEquals(Collections.singletonList("slow.pdf"), runner.getQuarantined());
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertFalse(output.exists());
+        assertEquals(0, dir.toFile().listFiles((d, name) -> name.endsWith(".tmp")).length);
+    }
+
+    @Test
+    void stackOverflowQuarantinesFileAndReleasesItsSlot() throws Exception {
+        BatchRunner.Job job = (source, cancelled) -> {
+            if (source.getName().startsWith("deep")) {
+                throw new StackOverflowError();
+            }
+            return Collections.singletonList(new InvoiceData());
+        };
+
+        BatchRunner runner = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> run(job, 0, "deep-1.pdf", "deep-2.pdf", "ok-1.pdf", "ok-2.pdf"));
+
+        assertEquals(2, runner.getSuccessCount());
+        assertEquals(Arrays.asList("deep-1.pdf", "deep-2.pdf"), sorted(runner.getQuarantined()));
+    }
+
+    @Test
+    void otherErrorsFailTheFileWithoutStallingTheBatch() throws Exception {
+        BatchRunner.Job job = (source, cancelled) -> {
+            if (source.getName().equals("broken.pdf")) {
+                throw new NoClassDefFoundError("org/example/Missing");
+            }
+            return Collections.singletonList(new InvoiceData());
+        };
+
+        BatchRunner runner = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> run(job, 0, "broken.pdf", "ok.pdf"));
+
+        assertEquals(1, runner.getSuccessCount());
+        assertEquals(1, runner.getFailCount());
+    }
+
+    @Test
+    void failureAfterParsingIsCountedAsAFailure() throws Exception {
+        BatchOptions options = new BatchOptions();
+        options.setParallelism(1);
+        options.setCostEstimator(new CostEstimator(new TimingHistory()) {
+            @Override
+            public void record(String sourceName, long size, List<InvoiceData> invoices, long millis) {
+                throw new IllegalStateException("history unavailable");
+            }
+        });
+        BatchRunner.Job job = (source, cancelled) -> Collections.singletonList(new InvoiceData());
+
+        try (CheckpointJournal journal = new CheckpointJournal(dir.resolve("journal").toFile(), true)) {
+            BatchRunner runner = new BatchRunner(options, journal);
+            runner.run(Collections.singletonList(InvoiceSource.of("a.csv", new byte[0])).iterator(),
+                    Collections.emptyMap(), job);
+
+            assertEquals(0, runner.getSuccessCount());
+            assertEquals(1, runner.getFailCount());
+        }
+    }
+
+    private BatchRunner run(BatchRunner.Job job, long timeoutMillis, String... names) throws Exception {
+        BatchOptions options = new BatchOptions();
+        options.setParallelism(1);
+        options.setTimeoutMillis(timeoutMillis);
+
+        try (CheckpointJournal journal = new CheckpointJournal(dir.resolve("journal").toFile(), true)) {
+            BatchRunner runner = new BatchRunner(options, journal);
+            Iterator<InvoiceSource> sources = Arrays.stream(names)
+                    .map(name -> InvoiceSource.of(name, name.getBytes(StandardCharsets.UTF_8)))
+                    .iterator();
+            runner.run(sources, Collections.emptyMap(), job);
+            return runner;
+        }
+    }
+
+    private static List<String> sorted(List<String> names) {
+        Collections.sort(names);
+        return names;
+    }
+}
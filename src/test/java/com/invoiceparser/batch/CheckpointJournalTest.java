@@ -0,0 +1,114 @@
+package com.invoiceparser.batch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CheckpointJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void loadReturnsLastStateOfEveryInput() throws IOException {
+        File file = dir.resolve("journal").toFile();
+        try (CheckpointJournal journal = new CheckpointJournal(file, true)) {
+            journal.started("done.pdf");
+            journal.done("done.pdf");
+            journal.started("failed.pdf");
+            journal.failed("failed.pdf", true, "IOException: Input/output error");
+            journal.started("poison.pdf");
+            journal.poisoned("poison.pdf", "Timed out after 1000 ms");
+            journal.started("crashed.pdf");
+        }
+
+        Map<String, CheckpointJournal.Entry> entries = CheckpointJournal.load(file);
+
+        assertEquals(4, entries.size());
+        assertEquals(CheckpointJournal.Status.DONE, entries.get("done.pdf").getStatus());
+        assertEquals(CheckpointJournal.Status.FAILED, entries.get("failed.pdf").getStatus());
+        assertTrue(entries.get("failed.pdf").isRetryable());
+        assertEquals("IOException: Input/output error", entries.get("failed.pdf").getReason());
+        assertEquals(CheckpointJournal.Status.POISONED, entries.get("poison.pdf").getStatus());
+        assertFalse(entries.get("poison.pdf").isRetryable());
+        assertEquals(CheckpointJournal.Status.CRASHED, entries.get("crashed.pdf").getStatus());
+    }
+
+    @Test
+    void beforeSyncRunsOncePerFlush() throws IOException {
+        File file = dir.resolve("journal").toFile();
+        AtomicInteger flushes = new AtomicInteger();
+        try (CheckpointJournal journal = new CheckpointJournal(file, true, 3, Long.MAX_VALUE)) {
+            journal.setBeforeSync(flushes::incrementAndGet);
+            for (int i = 0; i < 6; i++) {
+                journal.done("file-" + i + ".pdf");
+            }
+            assertEquals(2, flushes.get());
+        }
+        assertEquals(3, flushes.get());
+    }
+
+    @Test
+    void attemptsAccumulateAcrossRuns() throws IOException {
+        File file = dir.resolve("journal").toFile();
+        try (CheckpointJournal journal = new CheckpointJournal(file, true)) {
+            journal.started("flaky.pdf");
+            journal.failed("flaky.pdf", true, "first");
+        }
+        try (CheckpointJournal journal = new CheckpointJournal(file, false)) {
+            journal.started("flaky.pdf");
+            journal.failed("flaky.pdf", true, "second");
+        }
+
+        CheckpointJournal.Entry entry = CheckpointJournal.load(file).get("flaky.pdf");
+
+        assertEquals(2, entry.getAttempts());
+        assertEquals("second", entry.getReason());
+    }
+
+    @Test
+    void tornFinalLineIsIgnored() throws IOException {
+        File file = dir.resolve("journal").toFile();
+        try (CheckpointJournal journal = new CheckpointJournal(file, true)) {
+            journal.started("a.pdf");
+            journal.done("a.pdf");
+        }
+        Files.write(file.toPath(), "DO".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        Map<String, CheckpointJournal.Entry> entries = CheckpointJournal.load(file);
+
+        assertEquals(1, entries.size());
+        assertEquals(CheckpointJournal.Status.DONE, entries.get("a.pdf").getStatus());
+    }
+
+    @Test
+    void tabsAndNewlinesInReasonsDoNotBreakLines() throws IOException {
+        File file = dir.resolve("journal").toFile();
+        try (CheckpointJournal journal = new CheckpointJournal(file, true)) {
+            journal.failed("a.pdf", false, "line one\nline\ttwo");
+            journal.done("b.pdf");
+        }
+
+        Map<String, CheckpointJournal.Entry> entries = CheckpointJournal.load(file);
+
+        assertEquals("line one line two", entries.get("a.pdf").getReason());
+        assertEquals(CheckpointJournal.Status.DONE, entries.get("b.pdf").getStatus());
+    }
+
+    @Test
+    void missingJournalLoadsEmpty() throws IOException {
+        assertTrue(CheckpointJournal.load(dir.resolve("none").toFile()).isEmpty());
+    }
+}
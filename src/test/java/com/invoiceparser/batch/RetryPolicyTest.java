@@ -0,0 +1,112 @@
+package com.invoiceparser.batch;
+
+import com.invoiceparser.extractors.ResourceLimitException;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import com.invoiceparser.extractors.CSVExtractor;
+import com.invoiceparser.extractors.PDFExtractor;
+import com.invoiceparser.io.InvoiceSource;
+import com.invoiceparser.io.TransientIOException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryPolicyTest {
+
+    private final RetryPolicy policy = new RetryPolicy(3, 10);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void malformedPdfIsNotRetried() {
+        IOException error = assertThrows(IOException.class,
+                () -> PDDocument.load("not a pdf at all".getBytes(StandardCharsets.US_ASCII)));
+
+        assertFalse(policy.isRetryable(error));
+    }
+
+    @Test
+    void parserIoExceptionIsNotRetried() {
+        assertFalse(policy.isRetryable(new IOException("Expected a name")));
+    }
+
+    @Test
+    void plainIoExceptionIsJudgedByTypeNotByStackFrames() {
+        IOException error = new IOException("Input/output error");
+        error.setStackTrace(new StackTraceElement[] {
+            new StackTraceElement("java.io.FileInputStream", "readBytes", "FileInputStream.java", -2)
+        });
+
+        assertFalse(policy.isRetryable(error));
+        assertTrue(policy.isRetryable(new TransientIOException("a.pdf", error)));
+    }
+
+    @Test
+    void failureReadingASourceIsRetried() {
+        InputStream failing = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Input/output error");
+            }
+        };
+        InvoiceSource source = InvoiceSource.of("a.csv", failing);
+
+        IOException error = assertThrows(IOException.class, () -> new CSVExtractor().extract(source.openStream()));
+
+        assertTrue(policy.isRetryable(error));
+    }
+
+    @Test
+    void malformedPdfFileIsNotRetried() throws IOException {
+        File file = dir.resolve("broken.pdf").toFile();
+        Files.write(file.toPath(), "%PDF-1.4\nnot really".getBytes(StandardCharsets.US_ASCII));
+
+        IOException error = assertThrows(IOException.class, () -> new PDFExtractor().extract(file));
+
+        assertFalse(policy.isRetryable(error));
+    }
+
+    @Test
+    void permanentCauseOutweighsTransientMark() {
+        assertFalse(policy.isRetryable(new TransientIOException("out.json", new AccessDeniedException("out.json"))));
+    }
+
+    @Test
+    void networkAndFileSystemErrorsAreRetried() {
+        assertTrue(policy.isRetryable(new SocketException("Connection reset")));
+        assertTrue(policy.isRetryable(new FileSystemException("/mnt/nfs/a.pdf", null, "Stale file handle")));
+        assertTrue(policy.isRetryable(new IOException("Could not parse", new SocketException("Connection reset"))));
+    }
+
+    @Test
+    void permanentErrorsAreNotRetried() {
+        assertFalse(policy.isRetryable(new FileNotFoundException("a.pdf")));
+        assertFalse(policy.isRetryable(new NoSuchFileException("a.pdf")));
+        assertFalse(policy.isRetryable(new ResourceLimitException("too big", null)));
+        assertFalse(policy.isRetryable(new IllegalStateException("bug")));
+    }
+
+    @Test
+    void attemptsAreBounded() {
+        assertTrue(policy.canRetry(true, 2));
+        assertFalse(policy.canRetry(true, 3));
+        assertFalse(policy.canRetry(false, 1));
+        assertEquals(20, policy.getBackoffMillis(2));
+    }
+}
@@ -0,0 +1,179 @@
+package com.invoiceparser.batch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardCoordinatorTest {
+    private static final long LEASE_MILLIS = 60 * 1000;
+    private static final int WORKERS = 4;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void everyUnitIsDoneByExactlyOneWorker() throws Exception {
+        File shardDir = dir.resolve("shard").toFile();
+        List<String> inputs = IntStream.range(0, 40).mapToObj(i -> "f" + i + ".csv").collect(Collectors.toList());
+
+        List<Callable<List<String>>> workers = new ArrayList<>();
+        CyclicBarrier start = new CyclicBarrier(WORKERS);
+        for (int w = 0; w < WORKERS; w++) {
+            String id = "w" + w;
+            workers.add(() -> {
+                List<String> processed = new ArrayList<>();
+                try (ShardCoordinator coordinator = new ShardCoordinator(shardDir, id, LEASE_MILLIS)) {
+                    start.await();
+                    coordinator.plan(inputs, 3);
+                    ShardCoordinator.WorkUnit unit;
+                    while ((unit = coordinator.claim()) != null) {
+                        processed.addAll(unit.getInputs());
+                        assertTrue(coordinator.complete(unit));
+                    }
+                }
+                return processed;
+            });
+        }
+
+        List<String> processed = new ArrayList<>();
+        for (List<String> names : runAll(workers)) {
+            processed.addAll(names);
+        }
+        Collections.sort(processed);
+        List<String> expected = new ArrayList<>(inputs);
+        Collections.sort(expected);
+        assertEquals(expected, processed);
+        try (ShardCoordinator coordinator = new ShardCoordinator(shardDir, "check", LEASE_MILLIS)) {
+            assertTrue(coordinator.isFinished());
+        }
+    }
+
+    @Test
+    void expiredLeaseIsTakenOverByExactlyOneWorker() throws Exception {
+        for (int round = 0; round < 25; round++) {
+            File shardDir = dir.resolve("shard-" + round).toFile();
+            Path lease = deadWorkerLease(shardDir, "");
+
+            CyclicBarrier start = new CyclicBarrier(WORKERS);
+            List<Callable<ShardCoordinator.WorkUnit>> workers = new ArrayList<>();
+            for (int w = 0; w < WORKERS; w++) {
+                String id = "w" + w;
+                workers.add(() -> {
+                    try (ShardCoordinator coordinator = new ShardCoordinator(shardDir, id, LEASE_MILLIS)) {
+                        start.await();
+                        return coordinator.claim();
+                    }
+                });
+            }
+
+            List<ShardCoordinator.WorkUnit> claimed = runAll(workers);
+            assertEquals(1, claimed.stream().filter(unit -> unit != null).count(), "round " + round);
+            assertTrue(Files.notExists(lease));
+            assertEquals(1, lease.getParent().toFile().list().length);
+        }
+    }
+
+    @Test
+    void claimAbandonedHalfwayIsTakenOver() throws Exception {
+        File shardDir = dir.resolve("shard").toFile();
+        deadWorkerLease(shardDir, ".claim-");
+
+        try (ShardCoordinator coordinator = new ShardCoordinator(shardDir, "w0", LEASE_MILLIS)) {
+            ShardCoordinator.WorkUnit unit = coordinator.claim();
+            assertNotNull(unit);
+            assertEquals("unit-00001", unit.getId());
+            assertEquals(Arrays.asList("a.csv", "b.csv"), unit.getInputs());
+            assertTrue(coordinator.complete(unit));
+            assertTrue(coordinator.isFinished());
+        }
+    }
+
+    @Test
+    void liveLeaseIsNotTakenOver() throws Exception {
+        File shardDir = dir.resolve("shard").toFile();
+        try (ShardCoordinator owner = new ShardCoordinator(shardDir, "owner", LEASE_MILLIS);
+             ShardCoordinator other = new ShardCoordinator(shardDir, "other", LEASE_MILLIS)) {
+            owner.plan(Arrays.asList("a.csv", "b.csv"), 2);
+            assertNotNull(owner.claim());
+            assertNull(other.claim());
+            assertFalse(other.isFinished());
+        }
+    }
+
+    @Test
+    void onlyTheWorkerThatCompletesAUnitPublishesItsSummary() throws Exception {
+        File shardDir = dir.resolve("shard").toFile();
+        deadWorkerLease(shardDir, "");
+
+        try (ShardCoordinator late = new ShardCoordinator(shardDir, "dead", LEASE_MILLIS);
+             ShardCoordinator owner = new ShardCoordinator(shardDir, "owner", LEASE_MILLIS)) {
+            ShardCoordinator.WorkUnit taken = owner.claim();
+            assertNotNull(taken);
+            Files.write(owner.getSummaryFile(taken).toPath(), Collections.singletonList("owner"));
+
+            // The worker that lost the lease finishes the unit anyway
+            ShardCoordinator.WorkUnit lost = new ShardCoordinator.WorkUnit(taken.getId(), taken.getInputs(),
+                    dir.resolve("shard/plan/leases/unit-00001@dead"));
+            File lateSummary = late.getSummaryFile(lost);
+            Files.write(lateSummary.toPath(), Collections.singletonList("dead"));
+            assertFalse(late.complete(lost));
+            assertFalse(lateSummary.exists());
+
+            assertTrue(owner.complete(taken));
+            List<File> summaries = owner.getSummaryFiles();
+            assertEquals(1, summaries.size());
+            assertEquals(Collections.singletonList("owner"), Files.readAllLines(summaries.get(0).toPath()));
+        }
+    }
+
+    /**
+     * Plan one unit and leave it claimed by a worker that stopped renewing
+     * its lease, under the given name prefix
+     */
+    private static Path deadWorkerLease(File shardDir, String prefix) throws Exception {
+        Path lease;
+        try (ShardCoordinator dead = new ShardCoordinator(shardDir, "dead", LEASE_MILLIS)) {
+            dead.plan(Arrays.asList("a.csv", "b.csv"), 2);
+            assertNotNull(dead.claim());
+            lease = shardDir.toPath().resolve("plan/leases/unit-00001@dead");
+        }
+        Path renamed = lease.resolveSibling(prefix + lease.getFileName());
+        Files.move(lease, renamed);
+        Files.setLastModifiedTime(renamed, FileTime.fromMillis(System.currentTimeMillis() - 2 * LEASE_MILLIS));
+        return renamed;
+    }
+
+    private static <T> List<T> runAll(List<Callable<T>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+        try {
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
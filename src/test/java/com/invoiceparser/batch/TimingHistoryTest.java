@@ -0,0 +1,34 @@
+package com.invoiceparser.batch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class TimingHistoryTest {
+
+    @Test
+    void filesOfOneVendorShareAPattern() {
+        assertEquals(TimingHistory.patternOf("acme-2024-03.pdf"), TimingHistory.patternOf("acme-2024-04.pdf"));
+        assertEquals(TimingHistory.patternOf("ACME_17.pdf"), TimingHistory.patternOf("acme-2023-12.pdf"));
+        assertEquals(TimingHistory.patternOf("2024-03-acme.pdf"), TimingHistory.patternOf("2024-04-acme.pdf"));
+    }
+
+    @Test
+    void directoriesAndExtensionsKeepPatternsApart() {
+        assertNotEquals(TimingHistory.patternOf("invoices.zip/acme/inv-0001.pdf"),
+                TimingHistory.patternOf("invoices.zip/globex/inv-0001.pdf"));
+        assertNotEquals(TimingHistory.patternOf("acme-01.pdf"), TimingHistory.patternOf("acme-01.csv"));
+        assertNotEquals(TimingHistory.patternOf("acme-01.pdf"), TimingHistory.patternOf("globex-01.pdf"));
+    }
+
+    @Test
+    void ratesAreKeptPerVendor() {
+        TimingHistory history = new TimingHistory();
+        history.record("statements.zip/acme/inv-0001.pdf", "Acme", 100, 1);
+        history.record("statements.zip/globex/inv-0001.pdf", "Globex", 900, 1);
+
+        assertEquals(100, history.getMillisPerPage("statements.zip/acme/inv-0002.pdf"), 0.001);
+        assertEquals(900, history.getMillisPerPage("statements.zip/globex/inv-0002.pdf"), 0.001);
+    }
+}
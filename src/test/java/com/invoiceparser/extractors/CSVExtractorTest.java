@@ -0,0 +1,128 @@
+package com.invoiceparser.extractors;
+
+import com.invoiceparser.models.InvoiceData;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class CSVExtractorTest {
+
+    private final CSVExtractor extractor = new CSVExtractor();
+
+    @Test
+    void streamEntryPointsLeaveTheCallersStreamOpen() throws Exception {
+        TrackingStream stream = new TrackingStream(csv(
+                "Invoice Number,INV-1",
+                "Vendor,Acme",
+                "Total,10.00",
+                "",
+                "Description,Quantity,Unit Price,Amount",
+                "Widget,1,10.00,10.00"));
+
+        List<InvoiceData> invoices = extractor.extractAll(stream);
+
+        assertEquals(1, invoices.size());
+        assertFalse(stream.closed);
+
+        stream.reset();
+        extractor.extract(stream);
+        assertFalse(stream.closed);
+    }
+
+    @Test
+    void totalsAfterLineItemsStayWithTheirInvoice() throws Exception {
+        List<InvoiceData> invoices = extractAll(csv(
+                "Invoice Number,INV-1",
+                "Date,2024-01-15",
+                "Vendor,Acme",
+                "",
+                "Description,Quantity,Unit Price,Amount",
+                "Widget,1,10.00,10.00",
+                "Gadget,1,15.00,15.00",
+                "Subtotal,25.00",
+                "Tax,3.25",
+                "Total,28.25"));
+
+        assertEquals(1, invoices.size());
+        assertEquals("INV-1", invoices.get(0).getInvoiceNumber());
+        assertEquals(2, invoices.get(0).getItems().size());
+    }
+
+    @Test
+    void newInvoiceNumberAfterLineItemsStartsAnInvoice() throws Exception {
+        List<InvoiceData> invoices = extractAll(csv(
+                "Invoice Number,INV-1",
+                "Vendor,Acme",
+                "Description,Quantity,Unit Price,Amount",
+                "Widget,1,10.00,10.00",
+                "Subtotal,10.00",
+                "Total,10.00",
+                "Invoice Number,INV-2",
+                "Vendor,Globex",
+                "Description,Quantity,Unit Price,Amount",
+                "Gadget,2,5.00,10.00",
+                "Total,10.00"));
+
+        assertEquals(2, invoices.size());
+        assertEquals("INV-1", invoices.get(0).getInvoiceNumber());
+        assertEquals(10.00, invoices.get(0).getTotalAmount(), 0.001);
+        assertEquals(1, invoices.get(0).getItems().size());
+        assertEquals("INV-2", invoices.get(1).getInvoiceNumber());
+        assertEquals("Globex", invoices.get(1).getVendorName());
+        assertEquals(1, invoices.get(1).getItems().size());
+    }
+
+    @Test
+    void invoicesWithoutLineItemsSplitAtEachNumber() throws Exception {
+        List<InvoiceData> invoices = extractAll(csv(
+                "Invoice Number,INV-1",
+                "Total,10.00",
+                "Invoice Number,INV-2",
+                "Total,20.00"));
+
+        assertEquals(2, invoices.size());
+        assertEquals(20.00, invoices.get(1).getTotalAmount(), 0.001);
+    }
+
+    @Test
+    void repeatedInvoiceNumberContinuesTheInvoice() throws Exception {
+        List<InvoiceData> invoices = extractAll(csv(
+                "Invoice Number,INV-1",
+                "Description,Quantity,Unit Price,Amount",
+                "Widget,1,10.00,10.00",
+                "Invoice Number,INV-1",
+                "Gadget,1,5.00,5.00",
+                "Total,15.00"));
+
+        assertEquals(1, invoices.size());
+    }
+
+    private List<InvoiceData> extractAll(String content) throws Exception {
+        return extractor.extractAll(new StringReader(content));
+    }
+
+    static String csv(String... lines) {
+        return String.join("\n", lines) + "\n";
+    }
+
+    private static class TrackingStream extends ByteArrayInputStream {
+        private boolean closed;
+
+        TrackingStream(String content) {
+            super(content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
+}
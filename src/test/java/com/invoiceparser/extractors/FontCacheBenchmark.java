@@ -0,0 +1,124 @@
+package com.invoiceparser.extractors;
+
+import com.google.gson.Gson;
+import com.invoiceparser.models.InvoiceData;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDTrueTypeFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.font.encoding.WinAnsiEncoding;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures the thread CPU time spent per document with and without the font
+ * cache, on a same-vendor corpus: one-page invoices that all embed the same
+ * two fonts in full, as a Type 0 and a TrueType font.
+ *
+ * Not a test; run it from the test classpath:
+ * {@code java -cp <test and main classpath> com.invoiceparser.extractors.FontCacheBenchmark [documents] [rounds]}
+ */
+public class FontCacheBenchmark {
+    // Shipped with PDFBox, so the corpus is the same everywhere
+    private static final String FONT = "/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf";
+
+    public static void main(String[] args) throws Exception {
+        int documents = args.length > 0 ? Integer.parseInt(args[0]) : 120;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        File corpus = Files.createTempDirectory("font-cache-bench").toFile();
+        try {
+            List<File> files = writeCorpus(corpus, documents);
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            Gson gson = new Gson();
+            Map<File, String> reference = new HashMap<>();
+
+            // The first round warms up the JIT for both
+            for (int round = 0; round < rounds; round++) {
+                for (boolean cached : new boolean[] {false, true}) {
+                    FontCache cache = cached ? new FontCache(FontCache.DEFAULT_MAX_BYTES) : null;
+                    PDFExtractor extractor = new PDFExtractor(null, 0, null, cache);
+                    long cpu = 0;
+                    int mismatches = 0;
+                    for (File file : files) {
+                        long start = threads.getCurrentThreadCpuTime();
+                        List<InvoiceData> invoices = extractor.extractAll(file);
+                        cpu += threads.getCurrentThreadCpuTime() - start;
+
+                        String json = gson.toJson(invoices);
+                        String expected = reference.putIfAbsent(file, json);
+                        if (expected != null && !expected.equals(json)) {
+                            mismatches++;
+                        }
+                    }
+                    System.out.printf("round %d %-8s cpu/doc %6.2f ms  mismatches %d%s%n",
+                            round, cached ? "cache" : "no cache", cpu / 1e6 / files.size(), mismatches,
+                            cached ? String.format("  hits %d misses %d", cache.getHits(), cache.getMisses()) : "");
+                }
+            }
+        } finally {
+            for (File file : corpus.listFiles()) {
+                Files.delete(file.toPath());
+            }
+            Files.delete(corpus.toPath());
+        }
+    }
+
+    private static List<File> writeCorpus(File dir, int documents) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < documents; i++) {
+            try (PDDocument document = new PDDocument()) {
+                PDFont regular;
+                PDFont heading;
+                try (InputStream in = FontCacheBenchmark.class.getResourceAsStream(FONT)) {
+                    regular = PDType0Font.load(document, in, false);
+                }
+                try (InputStream in = FontCacheBenchmark.class.getResourceAsStream(FONT)) {
+                    heading = PDTrueTypeFont.load(document, in, WinAnsiEncoding.INSTANCE);
+                }
+
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setLeading(14);
+                    content.newLineAtOffset(50, 750);
+                    content.setFont(heading, 12);
+                    content.showText("Acme Corp");
+                    content.newLine();
+                    content.setFont(regular, 10);
+                    content.showText("Invoice #: INV-" + (5000 + i));
+                    content.newLine();
+                    content.showText(String.format("Date: 2024-05-%02d", 1 + i % 28));
+                    content.newLine();
+                    for (int line = 0; line < 10; line++) {
+                        content.showText("Widget 2 $5.00 $10.00");
+                        content.newLine();
+                    }
+                    content.showText("Subtotal: $100.00");
+                    content.newLine();
+                    content.showText("Tax: $13.00");
+                    content.newLine();
+                    content.showText("Total: $113.00");
+                    content.endText();
+                }
+
+                File file = new File(dir, String.format("acme-%04d.pdf", i));
+                document.save(file);
+                files.add(file);
+            }
+        }
+        return files;
+    }
+}
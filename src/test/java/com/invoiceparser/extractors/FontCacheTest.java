@@ -0,0 +1,71 @@
+package com.invoiceparser.extractors;
+
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.ScratchFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class FontCacheTest {
+
+    private final FontCache cache = new FontCache(FontCache.DEFAULT_MAX_BYTES);
+
+    @Test
+    void identicalFontIsLentToTheNextDocument() throws Exception {
+        PDFont font = PDType1Font.HELVETICA;
+        try (FontCache.DocumentCache first = cache.forDocument()) {
+            COSObject indirect = new COSObject(font.getCOSObject());
+            assertNull(first.getFont(indirect));
+            first.put(indirect, font);
+        }
+
+        try (FontCache.DocumentCache second = cache.forDocument()) {
+            COSObject copy = new COSObject(PDType1Font.HELVETICA.getCOSObject());
+            assertSame(font, second.getFont(copy));
+        }
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void unreadableFontProgramIsLeftUncached() throws Exception {
+        COSDictionary descriptor = new COSDictionary();
+        descriptor.setItem(COSName.FONT_FILE2, unreadableStream());
+        COSDictionary font = new COSDictionary();
+        font.setItem(COSName.TYPE, COSName.FONT);
+        font.setItem(COSName.SUBTYPE, COSName.TRUE_TYPE);
+        font.setItem(COSName.FONT_DESC, descriptor);
+
+        try (FontCache.DocumentCache fonts = cache.forDocument()) {
+            COSObject indirect = new COSObject(font);
+            assertNull(fonts.getFont(indirect));
+            fonts.put(indirect, PDType1Font.HELVETICA);
+        }
+        assertEquals(0, cache.getMisses());
+        assertEquals(0, cache.getIdleBytes());
+    }
+
+    /**
+     * A font file whose bytes are gone, like one of a damaged or closed document
+     */
+    private static COSStream unreadableStream() throws IOException {
+        ScratchFile scratch = ScratchFile.getMainMemoryOnlyInstance();
+        COSStream stream = new COSStream(scratch);
+        try (OutputStream out = stream.createRawOutputStream()) {
+            out.write(new byte[] {0, 1, 0, 0});
+        }
+        scratch.close();
+        return stream;
+    }
+}
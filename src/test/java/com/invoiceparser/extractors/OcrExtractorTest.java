@@ -0,0 +1,71 @@
+package com.invoiceparser.extractors;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class OcrExtractorTest {
+
+    @Test
+    void pageHashDistinguishesScansWrappedInForms() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDPage first = scannedPage(document, "INV-1");
+            PDPage second = scannedPage(document, "INV-2");
+            PDPage repeat = scannedPage(document, "INV-1");
+
+            assertNotEquals(OcrExtractor.pageHash(first), OcrExtractor.pageHash(second));
+            assertEquals(OcrExtractor.pageHash(first), OcrExtractor.pageHash(repeat));
+        }
+    }
+
+    /**
+     * A page that draws its scan through /Fm0 Do, as many scanners produce
+     */
+    private static PDPage scannedPage(PDDocument document, String text) throws IOException {
+        BufferedImage scan = new BufferedImage(200, 50, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = scan.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, 200, 50);
+        graphics.setColor(Color.BLACK);
+        graphics.drawString(text, 10, 30);
+        graphics.dispose();
+        PDImageXObject image = LosslessFactory.createFromImage(document, scan);
+
+        PDFormXObject form = new PDFormXObject(document);
+        form.setBBox(new PDRectangle(200, 50));
+        PDResources formResources = new PDResources();
+        formResources.put(COSName.getPDFName("Im0"), image);
+        form.setResources(formResources);
+        try (OutputStream out = form.getContentStream().createOutputStream()) {
+            out.write("q 200 0 0 50 0 0 cm /Im0 Do Q".getBytes("US-ASCII"));
+        }
+
+        PDPage page = new PDPage(new PDRectangle(200, 50));
+        PDResources resources = new PDResources();
+        resources.put(COSName.getPDFName("Fm0"), form);
+        page.setResources(resources);
+        PDStream contents = new PDStream(document);
+        try (OutputStream out = contents.createOutputStream()) {
+            out.write("/Fm0 Do".getBytes("US-ASCII"));
+        }
+        page.setContents(contents);
+        document.addPage(page);
+        return page;
+    }
+}
@@ -0,0 +1,142 @@
+package com.invoiceparser.extractors;
+
+import com.invoiceparser.models.InvoiceData;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PDFExtractorTest {
+
+    private final PDFExtractor extractor = new PDFExtractor();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void pagesWithoutANewInvoiceNumberContinueTheInvoice() throws Exception {
+        List<InvoiceData> invoices = extractAll(
+                page("Invoice #: INV-001", "Vendor: Acme", "Widget 1 $10.00 $10.00"),
+                page("Invoice Total: 28.25", "Invoice Date: 2024-01-15", "Total: $28.25"));
+
+        assertEquals(1, invoices.size());
+        assertEquals(28.25, invoices.get(0).getTotalAmount(), 0.001);
+    }
+
+    @Test
+    void pageWithANewInvoiceNumberStartsAnInvoice() throws Exception {
+        List<InvoiceData> invoices = extractAll(
+                page("Invoice #: INV-001", "Total: $10.00"),
+                page("Invoice Number: INV-001", "continued"),
+                page("Invoice No. 1043", "Total: $20.00"),
+                page("INV# 2044-B", "Total: $30.00"));
+
+        assertEquals(3, invoices.size());
+        assertEquals(10.00, invoices.get(0).getTotalAmount(), 0.001);
+        assertEquals(20.00, invoices.get(1).getTotalAmount(), 0.001);
+        assertEquals(30.00, invoices.get(2).getTotalAmount(), 0.001);
+    }
+
+    @Test
+    void wordsAfterInvoiceAreNoInvoiceNumber() throws Exception {
+        List<InvoiceData> invoices = extractAll(
+                page("Invoice: A-100", "Total: $10.00"),
+                page("Invoice: Total"),
+                page("Invoice # Number"),
+                page("Invoice Date: 2024-02-01"));
+
+        assertEquals(1, invoices.size());
+    }
+
+    @Test
+    void invoiceNumberIsReadWithOrWithoutAMarker() throws Exception {
+        assertEquals("123", extractAll(page("INV123")).get(0).getInvoiceNumber());
+        assertEquals("2024-7", extractAll(page("Bill No INV2024-7")).get(0).getInvoiceNumber());
+        assertEquals("INV-5000", extractAll(page("Invoice #: INV-5000")).get(0).getInvoiceNumber());
+        assertEquals("1043", extractAll(page("Invoice No. 1043")).get(0).getInvoiceNumber());
+        assertEquals("12345", extractAll(page("INVOICE 12345")).get(0).getInvoiceNumber());
+    }
+
+    @Test
+    void fileIsReadLikeAStream() throws Exception {
+        byte[] pdf = pdf(page("Invoice #: INV-001", "Total: $10.00"), page("Invoice #: INV-002", "Total: $20.00"));
+        Path file = dir.resolve("statement.pdf");
+        Files.write(file, pdf);
+
+        List<InvoiceData> invoices = extractor.extractAll(file.toFile());
+
+        assertEquals(2, invoices.size());
+        assertEquals(20.00, invoices.get(1).getTotalAmount(), 0.001);
+        assertEquals(extractor.extractAll(new ByteArrayInputStream(pdf)).toString(), invoices.toString());
+    }
+
+    @Test
+    void pooledStripperLetsGoOfTheDocument() throws Exception {
+        PDFExtractor.PooledTextStripper stripper = new PDFExtractor.PooledTextStripper();
+        WeakReference<PDDocument> stripped = strip(stripper, page("Invoice #: INV-001", "Total: $10.00"));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (stripped.get() != null && System.nanoTime() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(stripped.get(), "stripper still holds the document");
+
+        // And is still good for the next one
+        strip(stripper, page("Invoice #: INV-002"));
+    }
+
+    private static WeakReference<PDDocument> strip(PDFExtractor.PooledTextStripper stripper, String[] lines)
+            throws IOException {
+        try (PDDocument document = PDDocument.load(pdf(lines))) {
+            assertTrue(stripper.strip(document).contains(lines[0]));
+            return new WeakReference<>(document);
+        }
+    }
+
+    private List<InvoiceData> extractAll(String[]... pages) throws IOException {
+        return extractor.extractAll(new ByteArrayInputStream(pdf(pages)));
+    }
+
+    private static byte[] pdf(String[]... pages) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PDDocument document = new PDDocument()) {
+            for (String[] lines : pages) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, 12);
+                    content.setLeading(16);
+                    content.newLineAtOffset(50, 700);
+                    for (String line : lines) {
+                        content.showText(line);
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            document.save(out);
+        }
+        return out.toByteArray();
+    }
+
+    private static String[] page(String... lines) {
+        return lines;
+    }
+}
@@ -0,0 +1,92 @@
+package com.invoiceparser.extractors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelTasksTest {
+
+    private final ExecutorService pool = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void shutDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void cancelledPartLeavesThePoolThreadUninterrupted() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        AtomicBoolean release = new AtomicBoolean();
+
+        Callable<String> failing = () -> {
+            started.await();
+            throw new IOException("broken page");
+        };
+        Callable<String> running = () -> {
+            started.countDown();
+            // Busy, like a regex between interrupt checks
+            while (!release.get()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    interrupted.set(true);
+                }
+            }
+            return "done";
+        };
+
+        assertThrows(IOException.class, () -> ParallelTasks.invokeAll(pool, Arrays.asList(failing, running)));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!interrupted.get() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(interrupted.get(), "running part was not interrupted");
+        release.set(true);
+
+        // The next task on the same pool thread starts clean
+        assertFalse(pool.submit(() -> Thread.currentThread().isInterrupted()).get());
+    }
+
+    @Test
+    void staleInterruptDoesNotFailAPart() throws Exception {
+        pool.submit(() -> Thread.currentThread().interrupt()).get();
+        CountDownLatch queued = new CountDownLatch(1);
+
+        Callable<Boolean> first = () -> {
+            queued.await();
+            return false;
+        };
+        Callable<Boolean> second = () -> {
+            queued.countDown();
+            return Thread.currentThread().isInterrupted();
+        };
+
+        assertEquals(Arrays.asList(false, false), ParallelTasks.invokeAll(pool, Arrays.asList(first, second)));
+    }
+
+    @Test
+    void callerRunsExecutorKeepsTheCallersInterruptStatus() throws Exception {
+        List<Callable<Integer>> tasks = Collections.nCopies(3, () -> 1);
+        Thread.currentThread().interrupt();
+        try {
+            assertEquals(Arrays.asList(1, 1, 1), ParallelTasks.invokeAll(Runnable::run, tasks));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
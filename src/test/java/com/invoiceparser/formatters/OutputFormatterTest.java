@@ -0,0 +1,61 @@
+package com.invoiceparser.formatters;
+
+import com.invoiceparser.models.InvoiceData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class OutputFormatterTest {
+
+    private final OutputFormatter formatter = new OutputFormatter();
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void requirePosix() {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+    }
+
+    @Test
+    void newOutputGetsTheModeOfAnyNewFile() throws Exception {
+        // Whatever the umask allows, as for a file written in place
+        Set<PosixFilePermission> expected = Files.getPosixFilePermissions(Files.createFile(dir.resolve("plain")));
+
+        formatter.writeJson(invoice(), dir.resolve("x.json").toString());
+        formatter.writeCsv(invoice(), dir.resolve("x.csv").toString());
+
+        assertEquals(expected, Files.getPosixFilePermissions(dir.resolve("x.json")));
+        assertEquals(expected, Files.getPosixFilePermissions(dir.resolve("x.csv")));
+        assertEquals(3, dir.toFile().list().length, "temporary file left behind");
+    }
+
+    @Test
+    void rewrittenOutputKeepsItsMode() throws Exception {
+        Path target = dir.resolve("x.json");
+        formatter.writeJson(invoice(), target.toString());
+        Set<PosixFilePermission> mode = PosixFilePermissions.fromString("rw-r-----");
+        Files.setPosixFilePermissions(target, mode);
+
+        formatter.writeJson(invoice(), target.toString(), () -> false);
+
+        assertEquals(mode, Files.getPosixFilePermissions(target));
+    }
+
+    private static InvoiceData invoice() {
+        InvoiceData invoice = new InvoiceData();
+        invoice.setInvoiceNumber("INV-1");
+        invoice.setTotalAmount(10.0);
+        return invoice;
+    }
+}
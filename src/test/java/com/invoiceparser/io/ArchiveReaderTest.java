@@ -0,0 +1,137 @@
+package com.invoiceparser.io;
+
+import com.invoiceparser.batch.BatchOptions;
+import com.invoiceparser.batch.BatchRunner;
+import com.invoiceparser.batch.CheckpointJournal;
+import com.invoiceparser.models.InvoiceData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArchiveReaderTest {
+    private static final int KB = 1024;
+    private static final int MB = 1024 * KB;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void entryOverLimitIsDroppedWithoutLeavingSpill() throws Exception {
+        File archive = zip("bomb.zip", "bomb.pdf", new byte[8 * MB], "small.csv", csvBytes());
+        Set<String> spillsBefore = spillFiles();
+
+        List<InvoiceSource> sources = new ArrayList<>();
+        try (ArchiveReader reader = ArchiveReader.open(archive, name -> true, 64 * KB, MB)) {
+            reader.forEachRemaining(sources::add);
+        }
+
+        assertEquals(2, sources.size());
+        InvoiceSource bomb = sources.get(0);
+        assertEquals("bomb.zip/bomb.pdf", bomb.getName());
+        assertTrue(bomb.isOversized());
+        assertTrue(bomb.getSize() > MB && bomb.getSize() < 2 * MB, "stopped near the limit: " + bomb.getSize());
+        assertThrows(IOException.class, bomb::openStream);
+        assertEquals(spillsBefore, spillFiles());
+
+        // The entry after the bomb is still read
+        InvoiceSource small = sources.get(1);
+        assertFalse(small.isOversized());
+        try (InputStream in = small.openStream()) {
+            assertArrayEquals(csvBytes(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void entryOverLimitIsDroppedWhileStillInMemory() throws Exception {
+        File archive = zip("bomb.zip", "bomb.pdf", new byte[MB]);
+
+        try (ArchiveReader reader = ArchiveReader.open(archive, name -> true, 16 * MB, 64 * KB)) {
+            assertTrue(reader.next().isOversized());
+            assertFalse(reader.hasNext());
+        }
+    }
+
+    @Test
+    void largeEntryWithinLimitIsSpilled() throws Exception {
+        byte[] content = new byte[MB];
+        Arrays.fill(content, (byte) 'x');
+        File archive = zip("large.zip", "large.pdf", content);
+
+        try (ArchiveReader reader = ArchiveReader.open(archive, name -> true, 64 * KB, 0);
+             InvoiceSource source = reader.next()) {
+            assertFalse(source.isOversized());
+            assertTrue(source.getFile() != null && source.getFile().exists());
+            try (InputStream in = source.openStream()) {
+                assertArrayEquals(content, in.readAllBytes());
+            }
+        }
+    }
+
+    @Test
+    void batchQuarantinesOversizedEntryWithoutParsingIt() throws Exception {
+        File archive = zip("bomb.zip", "bomb.pdf", new byte[8 * MB], "small.csv", csvBytes());
+        BatchOptions options = new BatchOptions();
+        options.setParallelism(1);
+        options.setMaxArchiveEntrySize(MB);
+        List<String> parsed = Collections.synchronizedList(new ArrayList<>());
+
+        BatchRunner.Job job = (source, cancelled) -> {
+            parsed.add(source.getName());
+            return Collections.singletonList(new InvoiceData());
+        };
+        try (CheckpointJournal journal = new CheckpointJournal(dir.resolve("journal").toFile(), true)) {
+            BatchRunner runner = new BatchRunner(options, journal);
+            BatchInputs sources = new BatchInputs(Collections.singletonList(archive), name -> true,
+                    options.getMaxInMemoryEntrySize(), options.getArchiveEntryLimit(), (name, error) -> { });
+            runner.run(sources, Collections.emptyMap(), job);
+
+            assertEquals(Collections.singletonList("bomb.zip/bomb.pdf"), runner.getQuarantined());
+            assertEquals(Collections.singletonList("bomb.zip/small.csv"), parsed);
+        }
+    }
+
+    /**
+     * Zip alternating entry names and contents; zeros compress to almost nothing
+     */
+    private File zip(String name, Object... entries) throws IOException {
+        File archive = dir.resolve(name).toFile();
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(archive))) {
+            for (int i = 0; i < entries.length; i += 2) {
+                out.putNextEntry(new ZipEntry((String) entries[i]));
+                out.write((byte[]) entries[i + 1]);
+                out.closeEntry();
+            }
+        }
+        return archive;
+    }
+
+    private static byte[] csvBytes() {
+        return "Invoice Number,INV-1\nTotal,10.00\n".getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Set<String> spillFiles() {
+        String[] names = new File(System.getProperty("java.io.tmpdir"))
+                .list((d, name) -> name.startsWith("invoice-entry-"));
+        return names != null ? new HashSet<>(Arrays.asList(names)) : Collections.emptySet();
+    }
+}
@@ -0,0 +1,64 @@
+package com.invoiceparser.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchInputsTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void uncheckedFailureInsideAnArchiveIsReportedAndSkipped() throws Exception {
+        File archive = dir.resolve("broken.zip").toFile();
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(archive))) {
+            out.putNextEntry(new ZipEntry("a.csv"));
+            out.write("Invoice Number,INV-1\n".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+        File plain = dir.resolve("plain.csv").toFile();
+        Files.write(plain.toPath(), "Invoice Number,INV-2\n".getBytes(StandardCharsets.UTF_8));
+
+        List<String> errors = new ArrayList<>();
+        BatchInputs inputs = new BatchInputs(Arrays.asList(archive, plain), name -> {
+            if (name.startsWith("broken.zip/")) {
+                throw new IllegalArgumentException("corrupt header");
+            }
+            return true;
+        }, 1024, 0, (name, error) -> errors.add(name + ": " + error.getMessage()));
+
+        List<String> names = new ArrayList<>();
+        inputs.forEachRemaining(source -> names.add(source.getName()));
+
+        assertEquals(Collections.singletonList("plain.csv"), names);
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).startsWith("broken.zip: Malformed archive"), errors.get(0));
+    }
+
+    @Test
+    void unreadableArchiveIsReported() {
+        File archive = dir.resolve("missing.zip").toFile();
+        List<String> errors = new ArrayList<>();
+        BatchInputs inputs = new BatchInputs(Collections.singletonList(archive), name -> true, 1024, 0,
+                (name, error) -> errors.add(name));
+
+        assertFalse(inputs.hasNext());
+        assertEquals(Collections.singletonList("missing.zip"), errors);
+    }
+}
@@ -0,0 +1,100 @@
+package com.invoiceparser.models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the heap retained by a million invoices held as an
+ * {@code ArrayList<InvoiceData>} and as an {@link InvoiceBatch}, and the time
+ * to scan them. Invoices have three line items each, with 500 vendors, 2,000
+ * customers and 2,000 item descriptions, and fresh String instances per
+ * invoice as text extraction produces them.
+ *
+ * Not a test; run each layout in its own JVM with a fixed heap, e.g.
+ * {@code java -Xmx2g -XX:+UseSerialGC -cp <test and main classpath>
+ * com.invoiceparser.models.InvoiceBatchFootprint batch 1000000}
+ */
+public class InvoiceBatchFootprint {
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 1 || !(args[0].equals("list") || args[0].equals("batch"))) {
+            System.err.println("Usage: InvoiceBatchFootprint list|batch [invoices]");
+            System.exit(2);
+        }
+        boolean batch = args[0].equals("batch");
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+        long before = usedHeap();
+        long start = System.nanoTime();
+        Random random = new Random(42);
+        List<InvoiceData> invoices;
+        if (batch) {
+            InvoiceBatch invoiceBatch = new InvoiceBatch();
+            for (int i = 0; i < count; i++) {
+                invoiceBatch.add(invoice(i, random));
+            }
+            invoiceBatch.trimToSize();
+            invoices = invoiceBatch;
+        } else {
+            ArrayList<InvoiceData> list = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                list.add(invoice(i, random));
+            }
+            list.trimToSize();
+            invoices = list;
+        }
+        long buildMillis = (System.nanoTime() - start) / 1_000_000;
+        long retained = usedHeap() - before;
+
+        start = System.nanoTime();
+        double sum = 0;
+        for (InvoiceData invoice : invoices) {
+            sum += invoice.getTotalAmount();
+            for (LineItem item : invoice.getItems()) {
+                sum += item.getQuantity();
+            }
+        }
+        long scanMillis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("%s: %,d invoices, retained %.1f MB (%d B/invoice), build %d ms, scan %d ms (%s)%n",
+                args[0], invoices.size(), retained / (1024.0 * 1024), retained / count, buildMillis, scanMillis,
+                sum > 0 ? "ok" : "empty");
+    }
+
+    private static InvoiceData invoice(int n, Random random) {
+        InvoiceData invoice = new InvoiceData();
+        invoice.setInvoiceNumber(new String("INV-" + (1_000_000 + n)));
+        invoice.setInvoiceDate(new String(String.format("2024-%02d-%02d", 1 + random.nextInt(12), 1 + random.nextInt(28))));
+        int vendor = random.nextInt(500);
+        invoice.setVendorName(new String("Vendor Supplies Company " + vendor));
+        invoice.setVendorAddress(new String(vendor + " Industrial Parkway, Springfield, IL 62701"));
+        int customer = random.nextInt(2000);
+        invoice.setCustomerName(new String("Customer Corporation " + customer));
+        invoice.setCustomerAddress(new String(customer + " Main Street, Suite 100, Chicago, IL 60601"));
+
+        double subtotal = 0;
+        for (int k = 0; k < 3; k++) {
+            int quantity = 1 + random.nextInt(20);
+            double price = (100 + random.nextInt(100_000)) / 100.0;
+            double total = Math.round(quantity * price * 100) / 100.0;
+            invoice.addItem(new LineItem(new String("Product description item " + random.nextInt(2000)),
+                    quantity, price, total));
+            subtotal += total;
+        }
+        subtotal = Math.round(subtotal * 100) / 100.0;
+        invoice.setSubtotal(subtotal);
+        invoice.setTaxAmount(Math.round(subtotal * 8) / 100.0);
+        invoice.setTotalAmount(Math.round((subtotal + invoice.getTaxAmount()) * 100) / 100.0);
+        return invoice;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,114 @@
+package com.invoiceparser.models;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InvoiceBatchTest {
+
+    private final Gson gson = new Gson();
+
+    @Test
+    void viewsReadBackTheirSourceInvoices() {
+        List<InvoiceData> invoices = new ArrayList<>();
+        invoices.add(invoice("INV-001", "Acme", 12.5, new LineItem("Widget", 2, 5.0, 10.0),
+                new LineItem("Gadget", 1, 2.5, 2.5)));
+        invoices.add(invoice("INV-002", "Acme", -28.1234, new LineItem("Refund ü", -1, 28.1234, -28.1234)));
+        invoices.add(invoice("FACTURE-Nº3", "Globex", 0.0));
+        invoices.add(new InvoiceData());
+
+        InvoiceBatch batch = new InvoiceBatch(1, 1);
+        batch.addAll(invoices);
+
+        assertEquals(invoices.size(), batch.size());
+        assertEquals(3, batch.getItemCount());
+        for (int i = 0; i < invoices.size(); i++) {
+            assertEquals(gson.toJson(invoices.get(i)), gson.toJson(batch.get(i)), "invoice " + i);
+        }
+        assertNull(batch.get(3).getInvoiceNumber());
+    }
+
+    @Test
+    void parallelCollectKeepsTheOrder() {
+        List<InvoiceData> invoices = IntStream.range(0, 1000)
+                .mapToObj(i -> invoice("INV-" + i, "Vendor " + i % 7, i, new LineItem("Item " + i % 3, i, 1.0, i)))
+                .collect(Collectors.toList());
+
+        InvoiceBatch batch = invoices.parallelStream().collect(InvoiceBatch.collector());
+
+        assertEquals(gson.toJson(invoices), gson.toJson(batch));
+        // One date, seven vendors, one customer and three item descriptions
+        assertEquals(12, batch.getDistinctStrings());
+    }
+
+    @Test
+    void batchMergedWithItselfIsDoubled() {
+        InvoiceBatch batch = new InvoiceBatch();
+        batch.add(invoice("INV-1", "Acme", 10.0, new LineItem("Widget", 1, 10.0, 10.0)));
+        batch.add(invoice("INV-2", "Acme", 20.0));
+
+        assertEquals(batch, batch.merge(batch));
+
+        assertEquals(4, batch.size());
+        assertEquals(2, batch.getItemCount());
+        assertEquals(Arrays.asList("INV-1", "INV-2", "INV-1", "INV-2"),
+                batch.stream().map(InvoiceData::getInvoiceNumber).collect(Collectors.toList()));
+        assertEquals(gson.toJson(batch.get(0)), gson.toJson(batch.get(2)));
+    }
+
+    @Test
+    void amountsThatDoNotFitAreRejected() {
+        InvoiceBatch batch = new InvoiceBatch();
+        batch.add(invoice("INV-1", "Acme", InvoiceBatch.MAX_AMOUNT));
+        batch.add(invoice("INV-2", "Acme", -InvoiceBatch.MAX_AMOUNT));
+        assertEquals(InvoiceBatch.MAX_AMOUNT, batch.get(0).getTotalAmount());
+
+        for (double amount : new double[] {Double.NaN, Double.POSITIVE_INFINITY, 1e15, -1e15}) {
+            assertThrows(IllegalArgumentException.class, () -> batch.add(invoice("INV-X", "Acme", amount)));
+            assertThrows(IllegalArgumentException.class,
+                    () -> batch.add(invoice("INV-Y", "Acme", 1.0, new LineItem("Widget", 1, 1.0, 1.0),
+                            new LineItem("Bad", 1, amount, amount))));
+        }
+
+        // Failed adds leave nothing behind
+        assertEquals(2, batch.size());
+        assertEquals(0, batch.getItemCount());
+        batch.add(invoice("INV-3", "Acme", 1.0, new LineItem("Widget", 1, 1.0, 1.0)));
+        assertEquals(1, batch.get(2).getItems().size());
+        assertEquals("Widget", batch.get(2).getItems().get(0).getDescription());
+    }
+
+    @Test
+    void viewsAreReadOnly() {
+        InvoiceBatch batch = new InvoiceBatch();
+        batch.add(invoice("INV-1", "Acme", 10.0, new LineItem("Widget", 1, 10.0, 10.0)));
+
+        InvoiceData view = batch.get(0);
+        assertThrows(UnsupportedOperationException.class, () -> view.setVendorName("Other"));
+        assertThrows(UnsupportedOperationException.class, () -> view.getItems().add(new LineItem()));
+        assertThrows(UnsupportedOperationException.class, () -> view.getItems().get(0).setQuantity(2));
+    }
+
+    private static InvoiceData invoice(String number, String vendor, double total, LineItem... items) {
+        InvoiceData invoice = new InvoiceData();
+        invoice.setInvoiceNumber(number);
+        invoice.setInvoiceDate("2024-01-15");
+        invoice.setVendorName(vendor);
+        invoice.setCustomerName("Customer");
+        invoice.setSubtotal(total);
+        invoice.setTotalAmount(total);
+        for (LineItem item : items) {
+            invoice.addItem(item);
+        }
+        return invoice;
+    }
+}
@@ -0,0 +1,37 @@
+package com.invoiceparser.models;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvoiceDataTest {
+
+    @Test
+    void invoiceWithMatchingTotalsIsValid() {
+        assertTrue(invoice(100.00, 8.25, 108.25).isValid());
+    }
+
+    @Test
+    void creditNoteWithNegativeTotalIsValid() {
+        assertTrue(invoice(-25.00, -3.25, -28.25).isValid());
+    }
+
+    @Test
+    void invoiceWithoutTotalIsNotValid() {
+        assertFalse(new InvoiceData().isValid());
+    }
+
+    @Test
+    void invoiceWithMismatchedTotalsIsNotValid() {
+        assertFalse(invoice(100.00, 8.25, 110.00).isValid());
+    }
+
+    private static InvoiceData invoice(double subtotal, double tax, double total) {
+        InvoiceData invoice = new InvoiceData();
+        invoice.setSubtotal(subtotal);
+        invoice.setTaxAmount(tax);
+        invoice.setTotalAmount(total);
+        return invoice;
+    }
+}
@@ -0,0 +1,71 @@
+package com.invoiceparser.reports;
+
+import com.invoiceparser.formatters.OutputFormatter;
+import com.invoiceparser.models.InvoiceData;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvoiceAggregatorTest {
+
+    @Test
+    void monthOfReadsIsoDates() {
+        assertEquals("2024-03", InvoiceAggregator.monthOf("2024-03-15", InvoiceAggregator.DateOrder.DAY_FIRST));
+    }
+
+    @Test
+    void monthOfFollowsDateOrderForAmbiguousDates() {
+        assertEquals("2024-03", InvoiceAggregator.monthOf("03/04/2024", InvoiceAggregator.DateOrder.MONTH_FIRST));
+        assertEquals("2024-04", InvoiceAggregator.monthOf("03/04/2024", InvoiceAggregator.DateOrder.DAY_FIRST));
+        assertEquals("2024-04", InvoiceAggregator.monthOf("3-4-2024", InvoiceAggregator.DateOrder.DAY_FIRST));
+    }
+
+    @Test
+    void monthOfReadsUnambiguousDatesRegardlessOfOrder() {
+        assertEquals("2024-04", InvoiceAggregator.monthOf("25/04/2024", InvoiceAggregator.DateOrder.MONTH_FIRST));
+        assertEquals("2024-04", InvoiceAggregator.monthOf("04/25/2024", InvoiceAggregator.DateOrder.DAY_FIRST));
+    }
+
+    @Test
+    void monthOfRejectsUnknownDates() {
+        assertEquals(InvoiceAggregator.UNKNOWN_KEY, InvoiceAggregator.monthOf(null, InvoiceAggregator.DateOrder.MONTH_FIRST));
+        assertEquals(InvoiceAggregator.UNKNOWN_KEY, InvoiceAggregator.monthOf("March 2024", InvoiceAggregator.DateOrder.MONTH_FIRST));
+        assertEquals(InvoiceAggregator.UNKNOWN_KEY, InvoiceAggregator.monthOf("13/13/2024", InvoiceAggregator.DateOrder.MONTH_FIRST));
+    }
+
+    @Test
+    void groupsByMonthWithDayFirstDates() {
+        InvoiceAggregator aggregator = Stream.of(invoice("A", "01/02/2024", 10), invoice("B", "15/02/2024", 20))
+                .collect(InvoiceAggregator.collector(InvoiceAggregator.GroupBy.MONTH, InvoiceAggregator.DateOrder.DAY_FIRST));
+
+        assertEquals(1, aggregator.getGroups().size());
+        assertEquals("2024-02", aggregator.getGroups().get(0).getKey());
+        assertEquals(30, aggregator.getGrandTotal().getTotalAmount(), 0.001);
+    }
+
+    @Test
+    void csvReportEndsWithGrandTotal() {
+        InvoiceAggregator aggregator = new InvoiceAggregator(InvoiceAggregator.GroupBy.VENDOR);
+        aggregator.accept(invoice("Acme", "2024-01-05", 10));
+        aggregator.accept(invoice("Globex", "2024-01-06", 20));
+        aggregator.accept(invoice("Acme", "2024-02-05", 5));
+
+        String[] lines = new OutputFormatter().toReportCsvString(aggregator, 1).split("\n");
+
+        assertEquals(3, lines.length);
+        assertTrue(lines[1].startsWith("Globex,1,"), lines[1]);
+        assertEquals("TOTAL,3,0,35.00,0.00,35.00", lines[2]);
+    }
+
+    private static InvoiceData invoice(String vendor, String date, double total) {
+        InvoiceData invoice = new InvoiceData();
+        invoice.setVendorName(vendor);
+        invoice.setInvoiceDate(date);
+        invoice.setSubtotal(total);
+        invoice.setTotalAmount(total);
+        return invoice;
+    }
+}